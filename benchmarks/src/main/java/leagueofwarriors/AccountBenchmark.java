@@ -0,0 +1,61 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+// loading accounts.json files of different sizes, the way an import into the AccountStore reads them
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountBenchmark {
+    private static final String[] PROFESSIONS = {"Warrior", "Mage", "Rogue"};
+    @Param({"1000", "10000", "100000"})
+    public int accounts;
+    private Path json;
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        json = Files.createTempFile("accounts", ".json");
+        writeAccounts(json, accounts);
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(json);
+    }
+    @Benchmark
+    public ArrayList<Account> deserializeAccounts() throws IOException {
+        ArrayList<Account> loaded = new ArrayList<>(accounts);
+        AccountLoader.load(json, loaded::add, error -> {
+            throw new IllegalStateException(error);
+        });
+        return loaded;
+    }
+    // same shape as accounts.json: three characters and a couple of favorite games per account
+    static void writeAccounts(Path path, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("{\n  \"accounts\": [\n");
+            for (int i = 0; i < count; i++) {
+                out.write("    {\n      \"credentials\": {\"email\": \"user" + i + "@example.com\", " +
+                          "\"password\": \"password" + i + "\"},\n");
+                out.write("      \"name\": \"player" + i + "\", \"country\": \"Romania\", " +
+                          "\"favorite_games\": [\"Metin\", \"4Story\"], \"maps_completed\": \"" + i % 50 + "\",\n");
+                out.write("      \"characters\": [");
+                for (int j = 0; j < 3; j++) {
+                    out.write((j > 0 ? ", " : "") + "{\"name\": \"hero" + i + "_" + j + "\", \"profession\": \"" +
+                              PROFESSIONS[j] + "\", \"level\": \"" + (1 + (i + j) % 30) + "\", \"experience\": " +
+                              (i * 7 + j) % 50 + "}");
+                }
+                out.write("]\n    }" + (i < count - 1 ? "," : "") + "\n");
+            }
+            out.write("  ]\n}\n");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Sessions hammering the AccountRepository: logins and roster listings, progress updates, and a mix of
+ * nine reads to one update. hotAccounts is how many accounts the threads share, 1 being the worst case
+ * where every thread works on the same account. Run it with -t 1, -t 2, -t 4... to see how it scales:
+ *   java -jar benchmarks/target/benchmarks.jar AccountRepositoryBenchmark -t 4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountRepositoryBenchmark {
+    private static final int ACCOUNTS = 10_000;
+    @Param({"1", "64", "10000"})
+    public int hotAccounts;
+    private Path json, storePath;
+    private AccountStore store;
+    private AccountRepository repository;
+    private int[] ids;
+    private String[] passwords;
+    @State(Scope.Thread)
+    public static class Session {
+        final SplittableRandom rng = new SplittableRandom();
+        int exp;
+    }
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        json = Files.createTempFile("accounts", ".json");
+        storePath = Files.createTempFile("accounts", ".store");
+        AccountBenchmark.writeAccounts(json, ACCOUNTS);
+        AccountStore.importJson(json, storePath, error -> {
+            throw new IllegalStateException(error);
+        });
+        store = AccountStore.open(storePath);
+        // no progress log, the benchmark measures the repository and not the disk
+        repository = new AccountRepository(store, null);
+        ids = new int[hotAccounts];
+        passwords = new String[hotAccounts];
+        for (int i = 0; i < hotAccounts; i++) {
+            ids[i] = repository.find("user" + i + "@example.com");
+            passwords[i] = "password" + i;
+        }
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(json);
+        Files.deleteIfExists(storePath);
+    }
+    @Benchmark
+    public int read(Session session) {
+        int i = session.rng.nextInt(hotAccounts);
+        if (!repository.checkPassword(ids[i], passwords[i]))
+            throw new IllegalStateException("Wrong password of account " + ids[i]);
+        return repository.roster(ids[i]).length;
+    }
+    @Benchmark
+    public boolean update(Session session) {
+        int i = session.rng.nextInt(hotAccounts);
+        return repository.recordProgress(ids[i], 0, 1, session.exp++ & 31);
+    }
+    @Benchmark
+    public int mixed(Session session) {
+        if (session.rng.nextInt(10) == 0)
+            return update(session) ? 1 : 0;
+        return read(session);
+    }
+}
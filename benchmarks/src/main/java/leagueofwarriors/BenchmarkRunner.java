@@ -0,0 +1,52 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/*
+ * Runs the JMH benchmarks (any JMH command line option works, e.g. a benchmark regex or -p size=10)
+ * and writes the results as JSON to jmh-results/<commit>.json unless -rff is given,
+ * so runs of different commits can be compared side by side.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(commandLine);
+        if (!commandLine.getResult().hasValue()) {
+            Path results = Paths.get("jmh-results");
+            Files.createDirectories(results);
+            builder.result(results.resolve(runName() + ".json").toString());
+        }
+        if (!commandLine.getResultFormat().hasValue())
+            builder.resultFormat(ResultFormatType.JSON);
+        Options options = builder.build();
+        new Runner(options).run();
+    }
+    // the current commit, or the time of the run when not inside a git checkout
+    private static String runName() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String commit = new String(git.getInputStream().readAllBytes()).trim();
+            if (git.waitFor() == 0 && !commit.isEmpty())
+                return commit;
+        } catch (IOException e) {
+            // no git available
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    }
+}
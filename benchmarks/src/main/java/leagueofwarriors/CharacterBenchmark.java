@@ -0,0 +1,55 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// building characters and enemies, and resolving abilities at low, middle and maximum level
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CharacterBenchmark {
+    @Param({"1", "15", "30"})
+    public int level;
+    @Param({"Warrior", "Mage", "Rogue"})
+    public String profession;
+    private Character character;
+    private Enemy enemy;
+    private Spell spell;
+    private GameRandom random;
+    @Setup(Level.Iteration)
+    public void setUp() {
+        random = new GameRandom(level);
+        CombatEventBus events = new CombatEventBus(CombatEventBus.DEFAULT_CAPACITY);
+        character = CharacterFactory.create(profession, profession, 0, level);
+        character.random = random;
+        character.events = events;
+        enemy = new Enemy(random);
+        enemy.events = events;
+        spell = character.abilities.get(0);
+    }
+    @Benchmark
+    public Character create() {
+        return CharacterFactory.create(profession, profession, 0, level);
+    }
+    @Benchmark
+    public int getSpellDamage() {
+        return character.getSpellDamage(spell, enemy);
+    }
+    // the enemy and the mana are refilled so every call really uses the ability
+    @Benchmark
+    public boolean useAbility() {
+        enemy.hp = enemy.maxHp;
+        character.mana = character.maxMana;
+        return character.useAbility(spell, enemy, character.getDamage());
+    }
+    // what an encounter costs with the enemy of the previous one reused, see EnemyPool
+    @Benchmark
+    public int rollEnemy() {
+        enemy.roll(random);
+        return enemy.hp;
+    }
+}
@@ -0,0 +1,75 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Logins against AccountStores of 1k to 10M accounts: looking up random existing emails, in another case than
+ * they were imported with, and a share of unknown ones. The store is mapped, so the heap does not grow with it,
+ * but importing the 10M store takes a while and a couple of GB of temporary files:
+ *   java -jar benchmarks/target/benchmarks.jar LoginBenchmark -p accounts=1000,100000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int accounts;
+    private Path storePath;
+    private AccountStore store;
+    // built up front so only the lookups are measured; every 8th one does not exist
+    private final String[] emails = new String[1 << 16];
+    @State(Scope.Thread)
+    public static class Session {
+        int next;
+    }
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path json = Files.createTempFile("accounts", ".json");
+        storePath = Files.createTempFile("accounts", ".store");
+        try {
+            writeAccounts(json, accounts);
+            AccountStore.importJson(json, storePath, error -> {
+                throw new IllegalStateException(error);
+            });
+        } finally {
+            Files.deleteIfExists(json);
+        }
+        store = AccountStore.open(storePath);
+        SplittableRandom rng = new SplittableRandom(accounts);
+        for (int i = 0; i < emails.length; i++)
+            emails[i] = email(i % 8 == 0 ? accounts + i : rng.nextInt(accounts)).toUpperCase();
+    }
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(storePath);
+    }
+    @Benchmark
+    public int find(Session session) {
+        return store.find(emails[session.next++ & (emails.length - 1)]);
+    }
+    // accounts without characters, which keeps the file of 10M accounts small; find does not read them
+    private static void writeAccounts(Path path, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("{\"accounts\": [\n");
+            for (int i = 0; i < count; i++)
+                out.write("{\"credentials\": {\"email\": \"" + email(i) + "\", \"password\": \"password" + i +
+                          "\"}, \"name\": \"player" + i + "\", \"country\": \"Romania\", \"favorite_games\": [], " +
+                          "\"maps_completed\": \"0\", \"characters\": []}" + (i < count - 1 ? "," : "") + "\n");
+            out.write("]}\n");
+        }
+    }
+    private static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+}
@@ -0,0 +1,40 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// map generation and moves over map sizes from the usual 10x10 up to a million cells
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+    @Param({"10", "100", "1000"})
+    public int size;
+    private Grid map;
+    private boolean south = true;
+    private long seed;
+    @Setup(Level.Iteration)
+    public void setUp() {
+        map = Grid.generateMap(size, size, 3 * (2 * size - 1) / 5, 42);
+    }
+    @Benchmark
+    public Grid generateMap() {
+        return Grid.generateMap(size, size, 3 * (2 * size - 1) / 5, seed++);
+    }
+    // walks the rows in turn, east on the even ones and west on the odd ones, down to the last row and back up,
+    // so every call is a valid move and the whole map is walked over
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CellEntityType move() throws ImpossibleMoveException {
+        boolean east = (map.playerY & 1) == 0;
+        if (east ? map.playerX < map.length - 1 : map.playerX > 0)
+            return east ? map.goEast() : map.goWest();
+        if (map.playerY == (south ? map.width - 1 : 0))
+            south = !south;
+        return south ? map.goSouth() : map.goNorth();
+    }
+}
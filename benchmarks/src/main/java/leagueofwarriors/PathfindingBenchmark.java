@@ -0,0 +1,59 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Distance fields over a size x size map: searching the whole map for the portal, the sanctuaries or the
+ * unexplored cells, and exploring one step at a time, which repairs the field after every move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfindingBenchmark {
+    @Param({"100", "1000"})
+    public int size;
+    @Param({"PORTAL", "SANCTUARY", "UNEXPLORED"})
+    public String target;
+    @Param({"IGNORE", "AVOID"})
+    public String policy;
+    private Grid map;
+    private DistanceField field, explore;
+    private long seed;
+    @Setup(Level.Iteration)
+    public void setUp() {
+        newMap();
+    }
+    private void newMap() {
+        map = Grid.generateMap(size, size, 3 * (2 * size - 1) / 5, seed++);
+        field = map.paths().field(PathTarget.valueOf(target), EnemyPolicy.valueOf(policy));
+        explore = map.paths().field(PathTarget.UNEXPLORED, EnemyPolicy.valueOf(policy));
+    }
+    @Benchmark
+    public int distanceField() {
+        field.compute();
+        return field.distance(map.playerX, map.playerY);
+    }
+    // moves towards the nearest unexplored cell through whatever is there, a new map once all is explored
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CellEntityType exploreStep() throws ImpossibleMoveException {
+        switch (explore.nextStep(map.playerX, map.playerY)) {
+            case GameSession.NORTH:
+                return map.goNorth();
+            case GameSession.SOUTH:
+                return map.goSouth();
+            case GameSession.EAST:
+                return map.goEast();
+            case GameSession.WEST:
+                return map.goWest();
+            default:
+                newMap();
+                return null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// a move with the fog of war updated around the player, which should depend on the radius and not the map size
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisibilityBenchmark {
+    @Param({"100", "10000"})
+    public int size;
+    @Param({"0", "4", "16"})
+    public int radius;
+    private Grid map;
+    private boolean south = true;
+    private int changes;
+    @Setup(Level.Iteration)
+    public void setUp() {
+        map = Grid.generateMap(size, size, 1, 42);
+        map.visibility.setRadius(radius);
+        map.visibility.addListener(new VisibilityListener() {
+            public void visibilityChanged(int x, int y, int change) {
+                changes++;
+            }
+        });
+    }
+    // same walk as MapBenchmark.move
+    @Benchmark
+    public CellEntityType move() throws ImpossibleMoveException {
+        boolean east = (map.playerY & 1) == 0;
+        if (east ? map.playerX < map.length - 1 : map.playerX > 0)
+            return east ? map.goEast() : map.goWest();
+        if (map.playerY == (south ? map.width - 1 : 0))
+            south = !south;
+        return south ? map.goSouth() : map.goNorth();
+    }
+}
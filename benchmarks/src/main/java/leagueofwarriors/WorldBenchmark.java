@@ -0,0 +1,53 @@
+package leagueofwarriors;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// a walk over a world map, whose memory should follow the explored area and not the nominal size
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WorldBenchmark {
+    // cells a side
+    @Param({"1000", "1000000000"})
+    public int size;
+    @Param({"10000", "1000000"})
+    public int steps;
+    private ChunkedGrid map;
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Retained {
+        public long retainedBytes, chunksGenerated;
+    }
+    @Setup(Level.Iteration)
+    public void setUp() {
+        map = ChunkedGrid.generateMap(size, size, 42L);
+    }
+    // rows of sqrt(steps) cells, one under the other, turning back at the edges
+    @Benchmark
+    public CellEntityType walk(Retained retained) throws ImpossibleMoveException {
+        int side = (int) Math.sqrt(steps), walked = 0;
+        boolean east = true, south = map.playerY < map.width / 2;
+        CellEntityType cell = null;
+        for (int i = 0; i < steps; i++) {
+            boolean edge = east ? map.playerX == map.length - 1 : map.playerX == 0;
+            if (walked == side || edge) {
+                if (south ? map.playerY == map.width - 1 : map.playerY == 0)
+                    south = !south;
+                cell = south ? map.goSouth() : map.goNorth();
+                east = !east;
+                walked = 0;
+            } else {
+                cell = east ? map.goEast() : map.goWest();
+                walked++;
+            }
+        }
+        retained.retainedBytes = map.getRetainedBytes();
+        retained.chunksGenerated = map.getChunksGenerated();
+        return cell;
+    }
+}
@@ -1,10 +1,13 @@
+package leagueofwarriors;
+
 interface Visitor <T extends Entity> {
     void visit(T entity);
 }
 
+// spells only hold constants, so every ability of every entity is one of the INSTANCE flyweights
 abstract class Spell implements Visitor<Entity> {
-    int damage;
-    int manaCost;
+    final int damage;
+    final int manaCost;
     public Spell(int damage, int manaCost) {
         this.damage = damage;
         this.manaCost = manaCost;
@@ -15,7 +18,8 @@ abstract class Spell implements Visitor<Entity> {
 }
 
 class IceSpell extends Spell {
-    public IceSpell() {
+    static final IceSpell INSTANCE = new IceSpell();
+    private IceSpell() {
         super(100, 20);
     }
     public void visit(Entity entity) {
@@ -27,7 +31,8 @@ class IceSpell extends Spell {
 }
 
 class FireSpell extends Spell {
-    public FireSpell() {
+    static final FireSpell INSTANCE = new FireSpell();
+    private FireSpell() {
         super(150, 30);
     }
     public void visit(Entity entity) {
@@ -39,7 +44,8 @@ class FireSpell extends Spell {
 }
 
 class EarthSpell extends Spell {
-    public EarthSpell() {
+    static final EarthSpell INSTANCE = new EarthSpell();
+    private EarthSpell() {
         super(50, 10);
     }
     public void visit(Entity entity) {
@@ -1,10 +1,13 @@
+package leagueofwarriors;
+
 import java.util.ArrayList;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 class Credentials {
     private final String email;
-    private String password;
+    // volatile so checkPassword does not need the lock of setPassword
+    private volatile String password;
     public Credentials(String email, String password) {
         this.email = email;
         this.password = password;
@@ -12,7 +15,11 @@ class Credentials {
     public String getEmail() {
         return email;
     }
-    public boolean setPassword(String oldPassword, String newPassword) {
+    // only for writing the account to a store
+    String getPassword() {
+        return password;
+    }
+    public synchronized boolean setPassword(String oldPassword, String newPassword) {
         if (oldPassword.equals(password)) {
             password = newPassword;
             return true;
@@ -48,7 +55,10 @@ class Account {
             private String name;
             private String country;
             public InformationBuilder(String email, String password) {
-                creds = new Credentials(email, password);
+                this(new Credentials(email, password));
+            }
+            InformationBuilder(Credentials creds) {
+                this.creds = creds;
                 favoriteGames = new TreeSet<>();
             }
             public InformationBuilder setName(String name) {
@@ -88,4 +98,5 @@ class Account {
     public String toString() {
         return info + "\n" + characters + "\n" + gamesPlayed + "\n";
     }
-}
\ No newline at end of file
+}
+
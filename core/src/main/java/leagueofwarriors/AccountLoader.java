@@ -0,0 +1,438 @@
+package leagueofwarriors;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+class MalformedJsonException extends IOException {
+    public MalformedJsonException(String message) {
+        super(message);
+    }
+}
+
+// walks a JSON document straight from a Reader, cutting values out as raw text without building a tree
+class JsonScanner {
+    private final Reader reader;
+    private final char[] buffer;
+    private int pos, limit;
+    private long offset, bytePosition;
+    public JsonScanner(Reader reader) {
+        this.reader = reader;
+        buffer = new char[1 << 16];
+    }
+    // scans a value that is already in memory, without a read buffer
+    public JsonScanner(String json) {
+        reader = null;
+        buffer = json.toCharArray();
+        limit = buffer.length;
+    }
+    // consumes the current character, keeping count of its length in UTF-8
+    private void advance() {
+        char c = buffer[pos++];
+        if (c < 0x80)
+            bytePosition++;
+        else if (c < 0x800 || java.lang.Character.isSurrogate(c))
+            // each half of a surrogate pair counts for half of the 4 bytes
+            bytePosition += 2;
+        else
+            bytePosition += 3;
+    }
+    // offset in the UTF-8 input of the next character to be read
+    long bytePosition() {
+        return bytePosition;
+    }
+    private int peek() throws IOException {
+        if (pos == limit) {
+            if (reader == null)
+                return -1;
+            offset += limit;
+            limit = reader.read(buffer, 0, buffer.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos];
+    }
+    private int next() throws IOException {
+        int c = peek();
+        if (c != -1)
+            advance();
+        return c;
+    }
+    // returns the next character that is not whitespace, without consuming it
+    int peekToken() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            advance();
+            c = peek();
+        }
+        return c;
+    }
+    void expect(char expected) throws IOException {
+        int c = peekToken();
+        if (c != expected)
+            throw new MalformedJsonException("Expected '" + expected + "' at offset " + (offset + pos) +
+                                             (c == -1 ? " but the file ended" : " but found '" + (char) c + "'"));
+        advance();
+    }
+    String readString() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        expect('"');
+        copyStringBody(sb, true);
+        return sb.toString();
+    }
+    // copies the next value (object, array, string or literal) as raw JSON text, or skips it if sb is null
+    void readRaw(StringBuilder sb) throws IOException {
+        int c = peekToken();
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            do {
+                c = next();
+                if (c == -1)
+                    throw new MalformedJsonException("Unterminated value at offset " + (offset + pos));
+                if (sb != null)
+                    sb.append((char) c);
+                if (c == '"')
+                    copyStringBody(sb, false);
+                else if (c == '{' || c == '[')
+                    depth++;
+                else if (c == '}' || c == ']')
+                    depth--;
+            } while (depth > 0);
+        } else if (c == '"') {
+            next();
+            if (sb != null)
+                sb.append('"');
+            copyStringBody(sb, false);
+        } else {
+            while (c != -1 && c != ',' && c != '}' && c != ']' && c > ' ') {
+                if (sb != null)
+                    sb.append((char) c);
+                advance();
+                c = peek();
+            }
+        }
+    }
+    // reads up to and including the closing quote, either unescaping it or keeping it as raw text
+    private void copyStringBody(StringBuilder sb, boolean unescape) throws IOException {
+        while (true) {
+            int c = next();
+            if (c == -1)
+                throw new MalformedJsonException("Unterminated string at offset " + (offset + pos));
+            if (c == '"') {
+                if (sb != null && !unescape)
+                    sb.append('"');
+                return;
+            }
+            if (c == '\\') {
+                int escaped = next();
+                if (sb == null)
+                    continue;
+                if (!unescape) {
+                    sb.append('\\').append((char) escaped);
+                    continue;
+                }
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        char[] hex = {(char) next(), (char) next(), (char) next(), (char) next()};
+                        try {
+                            sb.append((char) Integer.parseInt(new String(hex), 16));
+                        } catch (NumberFormatException e) {
+                            throw new MalformedJsonException("Invalid unicode escape at offset " + (offset + pos));
+                        }
+                        break;
+                    default:
+                        sb.append((char) escaped);
+                        break;
+                }
+                continue;
+            }
+            if (sb != null)
+                sb.append((char) c);
+        }
+    }
+    // small tree parser for a single record that was cut out with readRaw
+    static Object parse(String json) throws IOException {
+        JsonScanner scanner = new JsonScanner(json);
+        Object value = scanner.readValue();
+        if (scanner.peekToken() != -1)
+            throw new MalformedJsonException("Trailing characters after value");
+        return value;
+    }
+    Object readValue() throws IOException {
+        int c = peekToken();
+        switch (c) {
+            case '{':
+                advance();
+                Map<String, Object> object = new HashMap<>();
+                if (peekToken() == '}') {
+                    advance();
+                    return object;
+                }
+                do {
+                    String name = readString();
+                    expect(':');
+                    object.put(name, readValue());
+                } while (consumeSeparator('}'));
+                return object;
+            case '[':
+                advance();
+                List<Object> array = new ArrayList<>();
+                if (peekToken() == ']') {
+                    advance();
+                    return array;
+                }
+                do {
+                    array.add(readValue());
+                } while (consumeSeparator(']'));
+                return array;
+            case '"':
+                return readString();
+            default:
+                StringBuilder sb = new StringBuilder();
+                readRaw(sb);
+                String literal = sb.toString();
+                switch (literal) {
+                    case "true":
+                        return Boolean.TRUE;
+                    case "false":
+                        return Boolean.FALSE;
+                    case "null":
+                        return null;
+                }
+                try {
+                    if (literal.indexOf('.') >= 0 || literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0)
+                        return Double.parseDouble(literal);
+                    return Long.parseLong(literal);
+                } catch (NumberFormatException e) {
+                    throw new MalformedJsonException("Invalid value '" + literal + "' at offset " + (offset + pos));
+                }
+        }
+    }
+    // returns true after a ',' and false after the closing character
+    boolean consumeSeparator(char close) throws IOException {
+        int c = peekToken();
+        if (c == ',') {
+            advance();
+            return true;
+        }
+        expect(close);
+        return false;
+    }
+}
+
+/*
+ * Loads accounts.json without holding more than a few batches of raw account records in memory.
+ * The reading thread only cuts the records out of the "accounts" array; batches of records are
+ * converted on a thread pool and handed to the sink in file order.
+ * A record that cannot be converted is reported and skipped, the rest keeps loading.
+ */
+class AccountLoader {
+    static final int BATCH_SIZE = 256;
+    // converts one raw record, reporting problems to errors; returns null to skip the record
+    interface RecordConverter<T> {
+        T convert(String record, long offset, int length, int index, List<String> errors) throws IOException;
+    }
+    private static class Batch {
+        final Object[] results;
+        final List<String> errors = new ArrayList<>();
+        Batch(int size) {
+            results = new Object[size];
+        }
+    }
+    // returns the number of accounts passed to the sink
+    public static int load(Path path, Consumer<Account> sink, Consumer<String> errors) throws IOException {
+        return scan(path, (record, offset, length, index, batchErrors) ->
+                toAccount(JsonScanner.parse(record), batchErrors, index), sink, errors);
+    }
+    @SuppressWarnings("unchecked")
+    private static <T> int scan(Path path, RecordConverter<T> converter, Consumer<T> sink,
+                                Consumer<String> errors) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "account-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int loaded = 0;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JsonScanner scanner = new JsonScanner(reader);
+            ArrayDeque<Future<Batch>> inFlight = new ArrayDeque<>();
+            scanner.expect('{');
+            if (scanner.peekToken() != '}') {
+                do {
+                    String name = scanner.readString();
+                    scanner.expect(':');
+                    if (!name.equals("accounts")) {
+                        scanner.readRaw(null);
+                        continue;
+                    }
+                    scanner.expect('[');
+                    if (scanner.peekToken() == ']') {
+                        scanner.expect(']');
+                        continue;
+                    }
+                    int index = 0;
+                    List<String> records = new ArrayList<>(BATCH_SIZE);
+                    // where each record starts in the file and how many bytes it takes
+                    long[] offsets = new long[BATCH_SIZE];
+                    int[] lengths = new int[BATCH_SIZE];
+                    do {
+                        StringBuilder record = new StringBuilder();
+                        scanner.peekToken();
+                        long start = scanner.bytePosition();
+                        scanner.readRaw(record);
+                        offsets[records.size()] = start;
+                        lengths[records.size()] = (int) (scanner.bytePosition() - start);
+                        records.add(record.toString());
+                        index++;
+                        if (records.size() == BATCH_SIZE) {
+                            inFlight.add(submit(pool, converter, index - records.size(), records, offsets, lengths));
+                            records = new ArrayList<>(BATCH_SIZE);
+                            offsets = new long[BATCH_SIZE];
+                            lengths = new int[BATCH_SIZE];
+                            // keep the reader at most a couple of batches ahead of the converters
+                            if (inFlight.size() >= 2 * threads)
+                                loaded += drain(inFlight.poll(), (Consumer<Object>) sink, errors);
+                        }
+                    } while (scanner.consumeSeparator(']'));
+                    if (!records.isEmpty())
+                        inFlight.add(submit(pool, converter, index - records.size(), records, offsets, lengths));
+                } while (scanner.consumeSeparator('}'));
+            }
+            while (!inFlight.isEmpty())
+                loaded += drain(inFlight.poll(), (Consumer<Object>) sink, errors);
+        } finally {
+            pool.shutdownNow();
+        }
+        return loaded;
+    }
+    private static Future<Batch> submit(ExecutorService pool, RecordConverter<?> converter, int firstIndex,
+                                        List<String> records, long[] offsets, int[] lengths) {
+        return pool.submit(() -> {
+            Batch batch = new Batch(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    batch.results[i] = converter.convert(records.get(i), offsets[i], lengths[i],
+                            firstIndex + i, batch.errors);
+                } catch (IOException | RuntimeException e) {
+                    batch.errors.add("! Account #" + (firstIndex + i) + " is malformed and was skipped: " +
+                                     e.getMessage() + " !");
+                }
+            }
+            return batch;
+        });
+    }
+    private static int drain(Future<Batch> future, Consumer<Object> sink, Consumer<String> errors) throws IOException {
+        Batch batch;
+        try {
+            batch = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading accounts", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        batch.errors.forEach(errors);
+        int count = 0;
+        for (Object result : batch.results) {
+            if (result != null) {
+                sink.accept(result);
+                count++;
+            }
+        }
+        return count;
+    }
+    @SuppressWarnings("unchecked")
+    private static Credentials toCredentials(Object json) {
+        if (!(json instanceof Map))
+            return null;
+        Object credentials = ((Map<String, Object>) json).get("credentials");
+        if (!(credentials instanceof Map))
+            return null;
+        Object email = ((Map<String, Object>) credentials).get("email");
+        Object password = ((Map<String, Object>) credentials).get("password");
+        if (!(email instanceof String) || !(password instanceof String))
+            return null;
+        return new Credentials((String) email, (String) password);
+    }
+    // same fields and rules as the old org.json loader; returns null if the record cannot be used
+    @SuppressWarnings("unchecked")
+    static Account toAccount(Object json, List<String> errors, int index) {
+        Credentials creds = toCredentials(json);
+        if (creds == null) {
+            errors.add("! Account #" + index + " doesn't have all credentials and was skipped !");
+            return null;
+        }
+        Map<String, Object> accountJson = (Map<String, Object>) json;
+        String email = creds.getEmail();
+        Account.Information.InformationBuilder builder = new Account.Information.InformationBuilder(creds);
+        // name, country, games_number
+        builder.setName((String) accountJson.get("name"));
+        builder.setCountry((String) accountJson.get("country"));
+        int gamesNumber = toInt(accountJson.get("maps_completed"));
+        // Favorite games
+        Object games = accountJson.get("favorite_games");
+        if (games instanceof List) {
+            for (Object game : (List<Object>) games)
+                builder.addFavoriteGame((String) game);
+        } else {
+            errors.add("! " + email + " doesn't have favorite games !");
+        }
+        // Characters
+        ArrayList<Character> characters = new ArrayList<>();
+        Object charactersJson = accountJson.get("characters");
+        if (charactersJson instanceof List) {
+            for (Object character : (List<Object>) charactersJson) {
+                Map<String, Object> charJson = (Map<String, Object>) character;
+                String profession = (String) charJson.get("profession");
+                Character created = CharacterFactory.create(profession, (String) charJson.get("name"),
+                        toInt(charJson.get("experience")), toInt(charJson.get("level")));
+                if (created == null)
+                    errors.add("! " + email + " has a character with unknown profession " + profession + " !");
+                else
+                    characters.add(created);
+            }
+        } else {
+            errors.add("! " + email + " doesn't have characters !");
+        }
+        return new Account(characters, gamesNumber, builder.build());
+    }
+    // numbers are stored either as JSON numbers or as strings
+    private static int toInt(Object value) {
+        if (value instanceof Number)
+            return ((Number) value).intValue();
+        if (value instanceof String)
+            return Integer.parseInt((String) value);
+        throw new IllegalArgumentException("expected a number but found " + value);
+    }
+}
@@ -0,0 +1,324 @@
+package leagueofwarriors;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+// one character of a roster, replaced instead of changed so a reader never sees half an update
+final class CharacterRecord {
+    final String name, profession;
+    final int level, exp;
+    // identifies the character in its account: its slot in the store, which removing others does not change
+    final int key;
+    public CharacterRecord(String name, String profession, int level, int exp, int key) {
+        this.name = name;
+        this.profession = profession;
+        this.level = level;
+        this.exp = exp;
+        this.key = key;
+    }
+    public Character create() {
+        return CharacterFactory.create(profession, name, exp, level);
+    }
+    CharacterRecord withProgress(int level, int exp) {
+        return new CharacterRecord(name, profession, level, exp, key);
+    }
+}
+
+/*
+ * Accounts shared by every session of a server, on top of an AccountStore.
+ * Each account is guarded by one of STRIPES StampedLocks (chosen by account number):
+ * - updates (progress, games played, password, roster) take the write lock of the stripe, and log to the
+ *   ProgressLog while holding it, so the log has the updates of an account in the order they happened
+ * - reads (checkPassword, roster, gamesPlayed) are optimistic, they only fall back to the read lock when
+ *   a write to the same stripe happened meanwhile; the only write they make is the used mark, and only
+ *   when it is not already set
+ * Rosters are arrays that are replaced on every change and never modified, so they can be handed out.
+ * Every change is persisted through the ProgressLog, when there is one; the store only gets it once the log
+ * has it, so the new password and roster are kept here meanwhile.
+ * Accounts are loaded from the store when first used and kept within a budget of estimated heap bytes.
+ * Past it the cold ones are evicted, second chance (CLOCK) style: an account used since the hand last went by
+ * is only unmarked. Accounts with changes the store does not have yet are never evicted; without a log
+ * that is every changed account. Evicting takes the write lock of the stripe, and updates look the account
+ * up while holding it, so an update never goes to an account that is no longer in the map.
+ */
+class AccountRepository {
+    static final int STRIPES = 64;
+    static final long DEFAULT_BUDGET = 64L << 20;
+    // estimated heap bytes of a loaded account and of each character in its roster
+    static final int ACCOUNT_BYTES = 160, CHARACTER_BYTES = 120;
+    // never completes: without a log, the store never gets the changes
+    private static final CompletableFuture<Void> UNLOGGED = new CompletableFuture<>();
+    private final AccountStore store;
+    private final ProgressLog progress;
+    private final long budget;
+    private final StampedLock[] locks = new StampedLock[STRIPES];
+    // built from the store the first time an account is used, only the accounts used are kept
+    private final ConcurrentHashMap<Integer, SharedAccount> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    // one thread evicts at a time, the others go on over budget rather than wait
+    private final ReentrantLock evicting = new ReentrantLock();
+    // the clock hand, guarded by evicting
+    private Iterator<SharedAccount> hand;
+    private static final class SharedAccount {
+        final int account;
+        // null while the password is the one in the store
+        String password;
+        int gamesPlayed;
+        CharacterRecord[] roster;
+        // slots used in the store, the removed characters included
+        int slots;
+        // the last change logged, null when the store has them all
+        CompletableFuture<Void> logged;
+        // set when used, cleared when the clock hand goes by
+        volatile boolean used;
+        SharedAccount(int account) {
+            this.account = account;
+        }
+        long bytes() {
+            return ACCOUNT_BYTES + (long) CHARACTER_BYTES * roster.length;
+        }
+        // the store has every change: the last one was written to the log, which applied it to the store
+        boolean isClean() {
+            return logged == null || logged.isDone() && !logged.isCompletedExceptionally();
+        }
+    }
+    public AccountRepository(AccountStore store, ProgressLog progress) {
+        this(store, progress, DEFAULT_BUDGET);
+    }
+    public AccountRepository(AccountStore store, ProgressLog progress, long budget) {
+        if (budget < 0)
+            throw new IllegalArgumentException("Negative budget " + budget);
+        this.store = store;
+        this.progress = progress;
+        this.budget = budget;
+        for (int i = 0; i < STRIPES; i++)
+            locks[i] = new StampedLock();
+    }
+    private StampedLock lock(int account) {
+        // spread neighbouring account numbers, which are often logged in together, over the stripes
+        int h = account * 0x9E3779B9;
+        return locks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+    // updates call this holding the write lock of the stripe, so the account cannot be evicted until they are done
+    private SharedAccount account(int account) {
+        SharedAccount shared = accounts.get(account);
+        if (shared != null) {
+            if (!shared.used)
+                shared.used = true;
+            return shared;
+        }
+        Account stored = store.load(account);
+        shared = new SharedAccount(account);
+        shared.gamesPlayed = stored.gamesPlayed;
+        shared.roster = new CharacterRecord[stored.characters.size()];
+        for (int i = 0; i < shared.roster.length; i++) {
+            Character character = stored.characters.get(i);
+            shared.roster[i] = new CharacterRecord(character.name, character.getClass().getSimpleName(),
+                                                   character.level, character.exp, store.slot(account, i));
+        }
+        shared.slots = store.getCharacterCount(account);
+        // the map publishes the fields safely; if another thread won, its copy is used
+        SharedAccount won = accounts.putIfAbsent(account, shared);
+        if (won != null)
+            return won;
+        if (bytes.addAndGet(shared.bytes()) > budget)
+            evict();
+        return shared;
+    }
+    private void evict() {
+        if (!evicting.tryLock())
+            return;
+        try {
+            // twice around the clock clears every used mark, past that only accounts that cannot go are left
+            for (long left = 2L * accounts.size(); bytes.get() > budget && left > 0; left--) {
+                if (hand == null || !hand.hasNext())
+                    hand = accounts.values().iterator();
+                if (!hand.hasNext())
+                    return;
+                SharedAccount shared = hand.next();
+                if (shared.used) {
+                    shared.used = false;
+                    continue;
+                }
+                // a stripe busy with an update, possibly the caller's, is passed over
+                StampedLock lock = lock(shared.account);
+                long stamp = lock.tryWriteLock();
+                if (stamp == 0)
+                    continue;
+                try {
+                    if (shared.isClean() && accounts.remove(shared.account, shared))
+                        bytes.addAndGet(-shared.bytes());
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+        } finally {
+            evicting.unlock();
+        }
+    }
+    // what is loaded, for tests
+    boolean isCached(int account) {
+        return accounts.containsKey(account);
+    }
+    long getCachedBytes() {
+        return bytes.get();
+    }
+    public int size() {
+        return store.size();
+    }
+    public int find(String email) {
+        return store.find(email);
+    }
+    public boolean checkPassword(int account, String password) {
+        SharedAccount shared = account(account);
+        StampedLock lock = lock(account);
+        long stamp = lock.tryOptimisticRead();
+        String changed = shared.password;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                changed = shared.password;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return changed != null ? changed.equals(password) : store.checkPassword(account, password);
+    }
+    public boolean changePassword(int account, String oldPassword, String newPassword) {
+        checkLength(newPassword);
+        StampedLock lock = lock(account);
+        long stamp = lock.writeLock();
+        try {
+            SharedAccount shared = account(account);
+            boolean matches = shared.password != null ? shared.password.equals(oldPassword)
+                                                      : store.checkPassword(account, oldPassword);
+            if (matches) {
+                shared.password = newPassword;
+                shared.logged = progress != null ? progress.logPassword(account, newPassword) : UNLOGGED;
+            }
+            return matches;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    // the returned array is never changed, a later change gives a new one
+    public CharacterRecord[] roster(int account) {
+        SharedAccount shared = account(account);
+        StampedLock lock = lock(account);
+        long stamp = lock.tryOptimisticRead();
+        CharacterRecord[] roster = shared.roster;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                roster = shared.roster;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return roster;
+    }
+    public int getGamesPlayed(int account) {
+        SharedAccount shared = account(account);
+        StampedLock lock = lock(account);
+        long stamp = lock.tryOptimisticRead();
+        int gamesPlayed = shared.gamesPlayed;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                gamesPlayed = shared.gamesPlayed;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return gamesPlayed;
+    }
+    /*
+    Progress of a character, e.g. after killing an enemy. Characters are found by key, since the roster may
+    have changed since the session picked it; the progress of a character removed meanwhile is dropped.
+    */
+    public boolean recordProgress(int account, int key, int level, int exp) {
+        return update(account, key, level, exp, false);
+    }
+    // a level completed also counts as a game played, incremented here so concurrent sessions do not lose any
+    public boolean levelCompleted(int account, int key, int level, int exp) {
+        return update(account, key, level, exp, true);
+    }
+    private boolean update(int account, int key, int level, int exp, boolean gamePlayed) {
+        StampedLock lock = lock(account);
+        long stamp = lock.writeLock();
+        try {
+            SharedAccount shared = account(account);
+            if (gamePlayed) {
+                shared.gamesPlayed++;
+                shared.logged = progress != null ? progress.logGamesPlayed(account, shared.gamesPlayed) : UNLOGGED;
+            }
+            CharacterRecord[] roster = shared.roster;
+            for (int i = 0; i < roster.length; i++) {
+                if (roster[i].key != key)
+                    continue;
+                roster = roster.clone();
+                roster[i] = roster[i].withProgress(level, exp);
+                shared.roster = roster;
+                shared.logged = progress != null ? progress.logProgress(account, key, level, exp) : UNLOGGED;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    // returns the key of the new character
+    public int addCharacter(int account, String name, String profession) {
+        // fails on an unknown profession before anything is changed
+        AccountStore.professionIndex(profession);
+        checkLength(name);
+        StampedLock lock = lock(account);
+        long stamp = lock.writeLock();
+        try {
+            SharedAccount shared = account(account);
+            CharacterRecord[] roster = Arrays.copyOf(shared.roster, shared.roster.length + 1);
+            int key = shared.slots++;
+            roster[roster.length - 1] = new CharacterRecord(name, profession, 1, 0, key);
+            shared.roster = roster;
+            bytes.addAndGet(CHARACTER_BYTES);
+            shared.logged = progress != null ? progress.logCharacterAdded(account, key, profession, name)
+                                             : UNLOGGED;
+            return key;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    public boolean removeCharacter(int account, int key) {
+        StampedLock lock = lock(account);
+        long stamp = lock.writeLock();
+        try {
+            SharedAccount shared = account(account);
+            CharacterRecord[] roster = shared.roster;
+            for (int i = 0; i < roster.length; i++) {
+                if (roster[i].key != key)
+                    continue;
+                CharacterRecord[] removed = new CharacterRecord[roster.length - 1];
+                System.arraycopy(roster, 0, removed, 0, i);
+                System.arraycopy(roster, i + 1, removed, i, roster.length - i - 1);
+                shared.roster = removed;
+                bytes.addAndGet(-CHARACTER_BYTES);
+                shared.logged = progress != null ? progress.logCharacterRemoved(account, key) : UNLOGGED;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    // the log takes strings up to a size, checked before anything is changed
+    private static void checkLength(String value) {
+        if (value.getBytes(StandardCharsets.UTF_8).length > ProgressLog.MAX_STRING)
+            throw new IllegalArgumentException("Longer than " + ProgressLog.MAX_STRING + " bytes");
+    }
+}
@@ -0,0 +1,546 @@
+package leagueofwarriors;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/*
+ * A section of a file mapped as 1 GB pages, so that it can be larger than a single MappedByteBuffer.
+ * Fixed size records are aligned to their size and never straddle two pages, but the strings section is
+ * packed, so a length or a reference in it can; those numbers are put together byte by byte.
+ */
+class MappedRegion {
+    static final int PAGE_BITS = 30;
+    private final int pageBits;
+    private final long pageMask;
+    private final MappedByteBuffer[] pages;
+    final long size;
+    // pages of 2^pageBits bytes, smaller than PAGE_BITS only for testing the page boundaries
+    public MappedRegion(FileChannel channel, FileChannel.MapMode mode, long position, long size, int pageBits)
+            throws IOException {
+        this.size = size;
+        this.pageBits = pageBits;
+        pageMask = (1L << pageBits) - 1;
+        pages = new MappedByteBuffer[(int) ((size + pageMask) >>> pageBits)];
+        for (int i = 0; i < pages.length; i++) {
+            long start = (long) i << pageBits;
+            pages[i] = channel.map(mode, position + start, Math.min(size - start, 1L << pageBits));
+        }
+    }
+    int getInt(long pos) {
+        MappedByteBuffer page = pages[(int) (pos >>> pageBits)];
+        int offset = (int) (pos & pageMask);
+        if (offset <= page.limit() - 4)
+            return page.getInt(offset);
+        return (int) getAcrossPages(pos, 4);
+    }
+    void putInt(long pos, int value) {
+        MappedByteBuffer page = pages[(int) (pos >>> pageBits)];
+        int offset = (int) (pos & pageMask);
+        if (offset <= page.limit() - 4) {
+            page.putInt(offset, value);
+            return;
+        }
+        for (int i = 0; i < 4; i++)
+            putByte(pos + i, (byte) (value >>> 24 - 8 * i));
+    }
+    void putLong(long pos, long value) {
+        MappedByteBuffer page = pages[(int) (pos >>> pageBits)];
+        int offset = (int) (pos & pageMask);
+        if (offset <= page.limit() - 8) {
+            page.putLong(offset, value);
+            return;
+        }
+        for (int i = 0; i < 8; i++)
+            putByte(pos + i, (byte) (value >>> 56 - 8 * i));
+    }
+    long getLong(long pos) {
+        MappedByteBuffer page = pages[(int) (pos >>> pageBits)];
+        int offset = (int) (pos & pageMask);
+        if (offset <= page.limit() - 8)
+            return page.getLong(offset);
+        return getAcrossPages(pos, 8);
+    }
+    // big endian, like the buffers
+    private long getAcrossPages(long pos, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++)
+            value = value << 8 | getByte(pos + i) & 0xff;
+        return value;
+    }
+    byte getByte(long pos) {
+        return pages[(int) (pos >>> pageBits)].get((int) (pos & pageMask));
+    }
+    void putByte(long pos, byte value) {
+        pages[(int) (pos >>> pageBits)].put((int) (pos & pageMask), value);
+    }
+    void get(long pos, byte[] dst) {
+        for (int i = 0; i < dst.length; i++)
+            dst[i] = getByte(pos + i);
+    }
+    void put(long pos, byte[] src) {
+        for (int i = 0; i < src.length; i++)
+            putByte(pos + i, src[i]);
+    }
+    void force() {
+        for (MappedByteBuffer page : pages)
+            page.force();
+    }
+}
+
+// buffered file output that knows how many bytes went through it, past 2 GB too
+class CountingStream extends FilterOutputStream {
+    long count;
+    public CountingStream(Path path) throws IOException {
+        super(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+    }
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+    }
+}
+
+/*
+ * Binary account store read through memory mapped sections, so opening it parses nothing.
+ * Layout, all numbers big endian:
+ *  - header (64 bytes): magic, version, account count, index capacity, generation, character count, offset
+ *    of the strings and their length; the generation is drawn at random by every import, see ProgressLog
+ *  - accounts (64 bytes each): email hash, games played, references to email, password, name, country and
+ *    the favorite games list, first character, character count and roster capacity
+ *  - characters (32 bytes each): reference to the name, profession, removed flag, level and exp
+ *  - email index: open addressing table of account number + 1 (0 is an empty slot), linear probing
+ *  - strings: UTF-8 strings prefixed by their length; a list is a count followed by string references;
+ *    followed by room for what is appended later
+ * Games played, level and exp are updated in place. A new password or character name is appended to the
+ * strings, and a roster that grows is moved there too, with room for a few more (its capacity is then set
+ * and its first character is a reference); a removed character only gets its flag set, so the characters
+ * keep their slot for good. Everything else is written once by importJson.
+ * Importing over an existing store keeps the accounts already in it as they are, only new ones are added.
+ */
+class AccountStore implements Closeable {
+    private static final long MAGIC = 0x4C4F5753544F5245L; // "LOWSTORE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    static final int ACCOUNT_SIZE = 64;
+    static final int CHARACTER_SIZE = 32;
+    private static final String[] PROFESSIONS = {"Warrior", "Mage", "Rogue"};
+    private static final byte REMOVED = 1;
+    private static final long MIN_GROWTH = 1 << 20;
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final int pageBits;
+    private final int accountCount, indexCapacity, generation;
+    private final long characterCount, stringsOffset;
+    private final MappedRegion accounts, characters, index;
+    // mapped again when appending goes past its end, by the one thread that writes
+    private volatile MappedRegion strings;
+    private long stringsEnd;
+    private AccountStore(FileChannel channel, boolean writable, int pageBits) throws IOException {
+        this.channel = channel;
+        this.pageBits = pageBits;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0)
+                break;
+        }
+        if (header.hasRemaining() || header.getLong(0) != MAGIC || header.getInt(8) != VERSION)
+            throw new IOException("Not an account store of version " + VERSION);
+        accountCount = header.getInt(12);
+        indexCapacity = header.getInt(16);
+        generation = header.getInt(20);
+        characterCount = header.getLong(24);
+        stringsOffset = header.getLong(32);
+        // stores imported before strings could be appended end with their strings
+        stringsEnd = header.getLong(40) > 0 ? header.getLong(40) : channel.size() - stringsOffset;
+        mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        long charactersOffset = HEADER_SIZE + (long) accountCount * ACCOUNT_SIZE;
+        long indexOffset = charactersOffset + characterCount * CHARACTER_SIZE;
+        accounts = new MappedRegion(channel, mode, HEADER_SIZE, (long) accountCount * ACCOUNT_SIZE, pageBits);
+        characters = new MappedRegion(channel, mode, charactersOffset, characterCount * CHARACTER_SIZE, pageBits);
+        index = new MappedRegion(channel, mode, indexOffset, 4L * indexCapacity, pageBits);
+        strings = new MappedRegion(channel, mode, stringsOffset, channel.size() - stringsOffset, pageBits);
+    }
+    public static AccountStore open(Path path) throws IOException {
+        return open(path, MappedRegion.PAGE_BITS);
+    }
+    // with pages of 2^pageBits bytes, small ones test what happens at the boundaries of 1 GB pages
+    static AccountStore open(Path path, int pageBits) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new AccountStore(channel, true, pageBits);
+    }
+    public static AccountStore openReadOnly(Path path) throws IOException {
+        return new AccountStore(FileChannel.open(path, StandardOpenOption.READ), false, MappedRegion.PAGE_BITS);
+    }
+    public int size() {
+        return accountCount;
+    }
+    public int getGeneration() {
+        return generation;
+    }
+    // emails are matched ignoring case and surrounding spaces
+    static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+    static int hash(String email) {
+        int h = normalize(email).hashCode();
+        return h ^ (h >>> 16);
+    }
+    // returns the account number, or -1 if there is no account with this email
+    public int find(String email) {
+        String normalized = normalize(email);
+        int h = hash(email);
+        for (int slot = h & (indexCapacity - 1); ; slot = (slot + 1) & (indexCapacity - 1)) {
+            int entry = index.getInt(4L * slot);
+            if (entry == 0)
+                return -1;
+            long record = accountRecord(entry - 1);
+            if (accounts.getInt(record) == h &&
+                normalize(readString(accounts.getLong(record + 8))).equals(normalized))
+                return entry - 1;
+        }
+    }
+    private static long accountRecord(int account) {
+        return (long) account * ACCOUNT_SIZE;
+    }
+    private static long characterRecord(long character) {
+        return character * CHARACTER_SIZE;
+    }
+    public String getEmail(int account) {
+        return readString(accounts.getLong(accountRecord(account) + 8));
+    }
+    public boolean checkPassword(int account, String password) {
+        return readString(accounts.getLong(accountRecord(account) + 16)).equals(password);
+    }
+    public int getGamesPlayed(int account) {
+        return accounts.getInt(accountRecord(account) + 4);
+    }
+    public void setGamesPlayed(int account, int gamesPlayed) {
+        accounts.putInt(accountRecord(account) + 4, gamesPlayed);
+    }
+    // characters of the account, the removed ones included: a character is numbered by its slot
+    public int getCharacterCount(int account) {
+        return accounts.getInt(accountRecord(account) + 56);
+    }
+    // the roster of the account is in the characters section until it grows
+    private MappedRegion roster(int account) {
+        return accounts.getInt(accountRecord(account) + 60) > 0 ? strings : characters;
+    }
+    private long character(int account, int i) {
+        if (i < 0 || i >= getCharacterCount(account))
+            throw new IndexOutOfBoundsException("Account " + account + " has no character " + i);
+        long record = accountRecord(account);
+        long first = accounts.getLong(record + 48);
+        return accounts.getInt(record + 60) > 0 ? first + (long) i * CHARACTER_SIZE : characterRecord(first + i);
+    }
+    public int getLevel(int account, int i) {
+        return roster(account).getInt(character(account, i) + 12);
+    }
+    public int getExp(int account, int i) {
+        return roster(account).getInt(character(account, i) + 16);
+    }
+    public void setProgress(int account, int i, int level, int exp) {
+        long record = character(account, i);
+        MappedRegion roster = roster(account);
+        roster.putInt(record + 12, level);
+        roster.putInt(record + 16, exp);
+    }
+    public boolean isRemoved(int account, int i) {
+        return roster(account).getByte(character(account, i) + 9) == REMOVED;
+    }
+    // slot of the i-th character that was not removed, as load() lists them
+    public int slot(int account, int i) {
+        int count = getCharacterCount(account);
+        for (int slot = 0, live = 0; slot < count; slot++)
+            if (!isRemoved(account, slot) && live++ == i)
+                return slot;
+        throw new IndexOutOfBoundsException("Account " + account + " has no character " + i);
+    }
+    public void setPassword(int account, String password) throws IOException {
+        if (!checkPassword(account, password))
+            accounts.putLong(accountRecord(account) + 16, appendString(password));
+    }
+    /*
+     * A new character in the next slot, or the one already in the slot written again (when a log is
+     * replayed twice), as it was created. A full roster is first moved to a block twice as large.
+     */
+    public void setCharacter(int account, int slot, String name, String profession) throws IOException {
+        long record = accountRecord(account);
+        int count = getCharacterCount(account);
+        if (slot < 0 || slot > count)
+            throw new IndexOutOfBoundsException("Account " + account + " has no character " + slot);
+        int capacity = accounts.getInt(record + 60);
+        if (slot == count && (capacity == 0 || count == capacity)) {
+            MappedRegion from = roster(account);
+            long first = count == 0 ? 0 : character(account, 0);
+            int grown = Math.max(4, 2 * count);
+            long block = allocate((long) grown * CHARACTER_SIZE);
+            MappedRegion to = strings;
+            for (long i = 0; i < (long) count * CHARACTER_SIZE; i++)
+                to.putByte(block + i, from.getByte(first + i));
+            accounts.putLong(record + 48, block);
+            accounts.putInt(record + 60, grown);
+        }
+        MappedRegion roster = roster(account);
+        long c = accounts.getInt(record + 60) > 0 ? accounts.getLong(record + 48) + (long) slot * CHARACTER_SIZE
+                                                 : characterRecord(accounts.getLong(record + 48) + slot);
+        if (slot == count || !name.equals(readString(roster.getLong(c))))
+            roster.putLong(c, appendString(name));
+        roster.putByte(c + 8, (byte) professionIndex(profession));
+        roster.putByte(c + 9, (byte) 0);
+        roster.putInt(c + 12, 1);
+        roster.putInt(c + 16, 0);
+        if (slot == count)
+            accounts.putInt(record + 56, count + 1);
+    }
+    public void removeCharacter(int account, int slot) {
+        roster(account).putByte(character(account, slot) + 9, REMOVED);
+    }
+    // builds the full account with its characters, the same way the JSON loader does
+    public Account load(int account) {
+        long record = accountRecord(account);
+        Account.Information.InformationBuilder builder = new Account.Information.InformationBuilder(
+                readString(accounts.getLong(record + 8)), readString(accounts.getLong(record + 16)));
+        builder.setName(readString(accounts.getLong(record + 24)));
+        builder.setCountry(readString(accounts.getLong(record + 32)));
+        long games = accounts.getLong(record + 40);
+        int nrGames = strings.getInt(games);
+        for (int i = 0; i < nrGames; i++)
+            builder.addFavoriteGame(readString(strings.getLong(games + 4 + 8L * i)));
+        ArrayList<Character> roster = new ArrayList<>();
+        MappedRegion region = roster(account);
+        int nrCharacters = accounts.getInt(record + 56);
+        for (int i = 0; i < nrCharacters; i++) {
+            long c = character(account, i);
+            if (region.getByte(c + 9) == REMOVED)
+                continue;
+            roster.add(CharacterFactory.create(PROFESSIONS[region.getByte(c + 8)],
+                    readString(region.getLong(c)), region.getInt(c + 16), region.getInt(c + 12)));
+        }
+        return new Account(roster, accounts.getInt(record + 4), builder.build());
+    }
+    // writes games played and the level and exp of every character back in place
+    public void save(int account, Account acc) {
+        setGamesPlayed(account, acc.gamesPlayed);
+        for (int i = 0; i < acc.characters.size(); i++) {
+            Character character = acc.characters.get(i);
+            setProgress(account, slot(account, i), character.level, character.exp);
+        }
+    }
+    private String readString(long ref) {
+        if (ref < 0)
+            return null;
+        byte[] bytes = new byte[strings.getInt(ref)];
+        strings.get(ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    // room for size more bytes at the end of the strings, which grow by an eighth at least when full
+    private long allocate(long size) throws IOException {
+        long ref = stringsEnd;
+        if (ref + size > strings.size) {
+            long grown = Math.max(ref + size, strings.size + Math.max(strings.size / 8, MIN_GROWTH));
+            channel.write(ByteBuffer.allocate(1), stringsOffset + grown - 1);
+            strings = new MappedRegion(channel, mode, stringsOffset, grown, pageBits);
+        }
+        stringsEnd = ref + size;
+        ByteBuffer end = ByteBuffer.allocate(8).putLong(0, stringsEnd);
+        while (end.hasRemaining())
+            channel.write(end, 40 + end.position());
+        return ref;
+    }
+    private long appendString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long ref = allocate(4 + bytes.length);
+        MappedRegion region = strings;
+        region.putInt(ref, bytes.length);
+        region.put(ref + 4, bytes);
+        return ref;
+    }
+    public void force() throws IOException {
+        accounts.force();
+        characters.force();
+        strings.force();
+        // the header, for the end of the strings
+        channel.force(false);
+    }
+    public void close() throws IOException {
+        channel.close();
+    }
+    public static int importJson(Path json, Path store, Consumer<String> errors) throws IOException {
+        return importJson(json, store, errors, null);
+    }
+    /*
+     * Streams accounts.json into a new store. Accounts, characters and strings are first written to
+     * temporary files, then copied behind the header and the email index is built in the mapped file.
+     * Accounts whose email is already in the store are reported and left out of the index.
+     * With a previous store, the accounts it has are taken from it instead of the JSON, with their progress,
+     * and the ones missing from the JSON are kept; previous is closed before the new store replaces it.
+     */
+    public static int importJson(Path json, Path store, Consumer<String> errors, AccountStore previous)
+            throws IOException {
+        Path dir = store.toAbsolutePath().getParent();
+        Path accountsTmp = Files.createTempFile(dir, "accounts", ".tmp");
+        Path charactersTmp = Files.createTempFile(dir, "characters", ".tmp");
+        Path stringsTmp = Files.createTempFile(dir, "strings", ".tmp");
+        try {
+            int[] count = new int[1];
+            long[] characterCount = new long[1];
+            CountingStream strings = new CountingStream(stringsTmp);
+            try (DataOutputStream accountsOut = new DataOutputStream(new CountingStream(accountsTmp));
+                 DataOutputStream charactersOut = new DataOutputStream(new CountingStream(charactersTmp));
+                 DataOutputStream stringsOut = new DataOutputStream(strings)) {
+                BitSet kept = new BitSet(previous == null ? 0 : previous.size());
+                Consumer<Account> writer = account -> {
+                    try {
+                        writeAccount(account, characterCount[0], accountsOut, charactersOut, stringsOut, strings);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    count[0]++;
+                    characterCount[0] += account.characters.size();
+                };
+                AccountLoader.load(json, account -> {
+                    int old = previous == null ? -1 : previous.find(account.getEmail());
+                    if (old == -1 || kept.get(old)) {
+                        writer.accept(account);
+                    } else {
+                        kept.set(old);
+                        writer.accept(previous.load(old));
+                    }
+                }, errors);
+                for (int old = previous == null ? -1 : kept.nextClearBit(0); old >= 0 && old < previous.size();
+                     old = kept.nextClearBit(old + 1))
+                    writer.accept(previous.load(old));
+            } catch (RuntimeException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw e;
+            }
+            // at most half full, so probing stays short
+            int capacity = Integer.highestOneBit(Math.max(2 * count[0], 8) - 1) << 1;
+            long indexOffset = HEADER_SIZE + (long) count[0] * ACCOUNT_SIZE + characterCount[0] * CHARACTER_SIZE;
+            long stringsOffset = (indexOffset + 4L * capacity + 7) & ~7L;
+            Path tmp = Files.createTempFile(dir, "store", ".tmp");
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putLong(MAGIC).putInt(VERSION).putInt(count[0]).putInt(capacity)
+                      .putInt(ThreadLocalRandom.current().nextInt())
+                      .putLong(characterCount[0]).putLong(stringsOffset).putLong(strings.count);
+                header.clear();
+                out.write(header, 0);
+                append(out, accountsTmp, HEADER_SIZE);
+                append(out, charactersTmp, HEADER_SIZE + (long) count[0] * ACCOUNT_SIZE);
+                // the index starts zeroed, which is all empty slots
+                out.write(ByteBuffer.allocate(1), stringsOffset - 1);
+                append(out, stringsTmp, stringsOffset);
+            }
+            try (AccountStore created = open(tmp)) {
+                for (int account = 0; account < count[0]; account++) {
+                    if (!created.insert(account))
+                        errors.accept("! Duplicate account " + created.getEmail(account) + " was left out !");
+                }
+                created.index.force();
+            }
+            if (previous != null)
+                previous.close();
+            Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING);
+            return count[0];
+        } finally {
+            Files.deleteIfExists(accountsTmp);
+            Files.deleteIfExists(charactersTmp);
+            Files.deleteIfExists(stringsTmp);
+        }
+    }
+    private boolean insert(int account) {
+        String email = normalize(getEmail(account));
+        int h = accounts.getInt(accountRecord(account));
+        for (int slot = h & (indexCapacity - 1); ; slot = (slot + 1) & (indexCapacity - 1)) {
+            int entry = index.getInt(4L * slot);
+            if (entry == 0) {
+                index.putInt(4L * slot, account + 1);
+                return true;
+            }
+            if (accounts.getInt(accountRecord(entry - 1)) == h &&
+                normalize(getEmail(entry - 1)).equals(email))
+                return false;
+        }
+    }
+    private static void append(FileChannel out, Path part, long position) throws IOException {
+        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+            long size = in.size();
+            for (long done = 0; done < size; )
+                done += in.transferTo(done, size - done, out.position(position + done));
+        }
+    }
+    private static void writeAccount(Account account, long firstCharacter, DataOutputStream accountsOut,
+                                     DataOutputStream charactersOut, DataOutputStream stringsOut,
+                                     CountingStream strings) throws IOException {
+        Account.Information info = account.info;
+        accountsOut.writeInt(hash(account.getEmail()));
+        accountsOut.writeInt(account.gamesPlayed);
+        accountsOut.writeLong(writeString(stringsOut, strings, account.getEmail()));
+        accountsOut.writeLong(writeString(stringsOut, strings, info.creds.getPassword()));
+        accountsOut.writeLong(writeString(stringsOut, strings, info.name));
+        accountsOut.writeLong(writeString(stringsOut, strings, info.country));
+        long[] games = new long[info.favoriteGames.size()];
+        int i = 0;
+        for (String game : info.favoriteGames)
+            games[i++] = writeString(stringsOut, strings, game);
+        long gamesRef = strings.count;
+        stringsOut.writeInt(games.length);
+        for (long game : games)
+            stringsOut.writeLong(game);
+        accountsOut.writeLong(gamesRef);
+        accountsOut.writeLong(firstCharacter);
+        accountsOut.writeInt(account.characters.size());
+        accountsOut.writeInt(0);
+        for (Character character : account.characters) {
+            charactersOut.writeLong(writeString(stringsOut, strings, character.name));
+            charactersOut.writeByte(professionOf(character));
+            charactersOut.write(new byte[3]);
+            charactersOut.writeInt(character.level);
+            charactersOut.writeInt(character.exp);
+            charactersOut.write(new byte[CHARACTER_SIZE - 20]);
+        }
+    }
+    private static int professionOf(Character character) {
+        return professionIndex(character.getClass().getSimpleName());
+    }
+    static String professionName(int index) {
+        return PROFESSIONS[index];
+    }
+    static int professionIndex(String profession) {
+        for (int i = 0; i < PROFESSIONS.length; i++)
+            if (PROFESSIONS[i].equals(profession))
+                return i;
+        throw new IllegalArgumentException("Unknown profession " + profession);
+    }
+    // returns the reference of the string, -1 for null
+    private static long writeString(DataOutputStream out, CountingStream counter, String value) throws IOException {
+        if (value == null)
+            return -1;
+        long ref = counter.count;
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return ref;
+    }
+}
@@ -0,0 +1,245 @@
+package leagueofwarriors;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+class Chunk {
+    static final int SIZE = 64;
+    final long key;
+    // cell types as ordinals of CellEntityType, null while the chunk is evicted
+    byte[] cells;
+    // the only things the player can change: which cells were seen and which were emptied by walking over them
+    final long[] visited = new long[SIZE * SIZE / 64];
+    final long[] cleared = new long[SIZE * SIZE / 64];
+    // cells in sight, always visited too, so they are kept like the visited ones
+    final long[] visible = new long[SIZE * SIZE / 64];
+    boolean explored;
+    public Chunk(long key) {
+        this.key = key;
+    }
+    static int index(int x, int y) {
+        return y * SIZE + x;
+    }
+    static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+    static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+    static void clear(long[] bits, int i) {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+}
+
+/*
+ * Map whose cells are generated one 64x64 chunk at a time, when the player gets close to it.
+ * Every chunk is derived only from the world seed and its coordinates, so it can be thrown away and
+ * regenerated at any time; only the chunks the player has changed keep their visited/cleared bits.
+ * Generated chunks live in a bounded LRU cache, so memory grows with the explored area and not with
+ * the nominal size of the map. This is the map of a GameSession in world mode; it cannot be searched as a
+ * whole, so auto-travel is not available there.
+ */
+class ChunkedGrid extends Grid {
+    private static final CellEntityType[] TYPES = CellEntityType.values();
+    // chunks are generated before the player is this close to their edge
+    static final int PREFETCH_DISTANCE = 8;
+    static final int DEFAULT_CACHE_SIZE = 64;
+    private final long seed;
+    private final int portalX, portalY, capacity;
+    private final LinkedHashMap<Long, Chunk> cache;
+    // chunks changed by the player that are not in the cache anymore (without their cells)
+    private final HashMap<Long, Chunk> explored = new HashMap<>();
+    private Chunk lastChunk;
+    private int chunksGenerated;
+    // the player still has to be placed
+    private ChunkedGrid(int length, int width, long seed, int cacheSize, int portalX, int portalY) {
+        super(length, width, null, null, null);
+        this.seed = seed;
+        this.portalX = portalX;
+        this.portalY = portalY;
+        // the 3x3 chunks around the player must always fit
+        capacity = Math.max(cacheSize, 9);
+        cache = new LinkedHashMap<Long, Chunk>(capacity * 4 / 3 + 1, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                if (size() <= capacity)
+                    return false;
+                Chunk chunk = eldest.getValue();
+                if (chunk.explored) {
+                    chunk.cells = null;
+                    explored.put(chunk.key, chunk);
+                }
+                if (chunk == lastChunk)
+                    lastChunk = null;
+                return true;
+            }
+        };
+    }
+    // player and portal are placed at least minDistance apart, anywhere on the map, drawn like those of a Grid
+    public static ChunkedGrid generateMap(int length, int width, int minDistance, long seed, int cacheSize) {
+        MapGeneratedEvent event = new MapGeneratedEvent();
+        event.begin();
+        SplittableRandom rng = new SplittableRandom(seed);
+        // a distance larger than the diagonal cannot be met and player and portal need different cells
+        int distance = (int) Math.max(1, Math.min(minDistance, (long) length - 1 + width - 1));
+        int[] placed = placePlayerAndPortal(length, width, distance, rng);
+        // chunks are generated lazily, so this only covers placing the player and the portal
+        ChunkedGrid map = new ChunkedGrid(length, width, seed, cacheSize, placed[2], placed[3]);
+        map.placePlayer(placed[0], placed[1]);
+        event.end();
+        if (event.shouldCommit()) {
+            event.length = length;
+            event.width = width;
+            event.minDistance = distance;
+            event.commit();
+        }
+        return map;
+    }
+    public static ChunkedGrid generateMap(int length, int width, long seed) {
+        // on huge maps the usual minDistance would put the portal out of reach, so keep it within a few chunks
+        int minDistance = Math.min(3 * (length + width - 1) / 5, 4 * Chunk.SIZE);
+        return generateMap(length, width, minDistance, seed, DEFAULT_CACHE_SIZE);
+    }
+    int getChunksGenerated() {
+        return chunksGenerated;
+    }
+    int getCachedChunks() {
+        return cache.size();
+    }
+    // cells of the cached chunks and bits of every chunk kept, which is what grows with exploring
+    long getRetainedBytes() {
+        long bits = 3L * Chunk.SIZE * Chunk.SIZE / 8;
+        return cache.size() * (Chunk.SIZE * Chunk.SIZE + bits) + explored.size() * bits;
+    }
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+    private Chunk chunkAt(int x, int y) {
+        int cx = x / Chunk.SIZE, cy = y / Chunk.SIZE;
+        long key = key(cx, cy);
+        // consecutive accesses almost always hit the same chunk
+        if (lastChunk != null && lastChunk.key == key)
+            return lastChunk;
+        Chunk chunk = cache.get(key);
+        if (chunk == null) {
+            chunk = explored.remove(key);
+            if (chunk == null)
+                chunk = new Chunk(key);
+            generate(chunk, cx, cy);
+            cache.put(key, chunk);
+        }
+        lastChunk = chunk;
+        return chunk;
+    }
+    private void generate(Chunk chunk, int cx, int cy) {
+        chunksGenerated++;
+        chunk.cells = new byte[Chunk.SIZE * Chunk.SIZE];
+        SplittableRandom rng = new SplittableRandom(mix(seed ^ mix(chunk.key)));
+        int x0 = cx * Chunk.SIZE, y0 = cy * Chunk.SIZE;
+        // same weights as Grid.generateMap: 0 is void; 1,2 is sanctuary; 3,4,5,6 is enemy
+        for (int i = 0; i < Chunk.SIZE * Chunk.SIZE; i++) {
+            int choice = rng.nextInt(7);
+            CellEntityType type;
+            if (chunk.explored && Chunk.get(chunk.cleared, i))
+                type = CellEntityType.VOID;
+            else if (choice == 0)
+                type = CellEntityType.VOID;
+            else if (choice <= 2)
+                type = CellEntityType.SANCTUARY;
+            else
+                type = CellEntityType.ENEMY;
+            chunk.cells[i] = (byte) type.ordinal();
+        }
+        if (portalX / Chunk.SIZE == cx && portalY / Chunk.SIZE == cy)
+            chunk.cells[Chunk.index(portalX - x0, portalY - y0)] = (byte) CellEntityType.PORTAL.ordinal();
+    }
+    // murmur3 finalizer, so that neighbouring chunks get unrelated random streams
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+    public CellEntityType getType(int x, int y) {
+        Chunk chunk = chunkAt(x, y);
+        return TYPES[chunk.cells[Chunk.index(x % Chunk.SIZE, y % Chunk.SIZE)]];
+    }
+    void setType(int x, int y, CellEntityType type) {
+        Chunk chunk = chunkAt(x, y);
+        int i = Chunk.index(x % Chunk.SIZE, y % Chunk.SIZE);
+        chunk.cells[i] = (byte) type.ordinal();
+        if (type == CellEntityType.VOID) {
+            Chunk.set(chunk.cleared, i);
+            chunk.explored = true;
+        }
+    }
+    public boolean isVisited(int x, int y) {
+        return Chunk.get(chunkAt(x, y).visited, Chunk.index(x % Chunk.SIZE, y % Chunk.SIZE));
+    }
+    void setVisited(int x, int y) {
+        Chunk chunk = chunkAt(x, y);
+        Chunk.set(chunk.visited, Chunk.index(x % Chunk.SIZE, y % Chunk.SIZE));
+        chunk.explored = true;
+    }
+    public boolean isVisible(int x, int y) {
+        return Chunk.get(chunkAt(x, y).visible, Chunk.index(x % Chunk.SIZE, y % Chunk.SIZE));
+    }
+    void setVisible(int x, int y, boolean isVisible) {
+        Chunk chunk = chunkAt(x, y);
+        if (isVisible)
+            Chunk.set(chunk.visible, Chunk.index(x % Chunk.SIZE, y % Chunk.SIZE));
+        else
+            Chunk.clear(chunk.visible, Chunk.index(x % Chunk.SIZE, y % Chunk.SIZE));
+    }
+    // only the chunks the player changed are copied, the cells are generated again when they are used
+    Grid copy() {
+        ChunkedGrid copy = new ChunkedGrid(length, width, seed, capacity, portalX, portalY);
+        for (Chunk chunk : cache.values())
+            copy.keepExplored(chunk);
+        for (Chunk chunk : explored.values())
+            copy.keepExplored(chunk);
+        copy.visibility.copyFrom(visibility);
+        copy.character = character;
+        copy.playerX = playerX;
+        copy.playerY = playerY;
+        // the cell under the player is the only one that is not generated the same
+        copy.setType(playerX, playerY, CellEntityType.PLAYER);
+        return copy;
+    }
+    private void keepExplored(Chunk chunk) {
+        if (!chunk.explored)
+            return;
+        Chunk kept = new Chunk(chunk.key);
+        System.arraycopy(chunk.visited, 0, kept.visited, 0, kept.visited.length);
+        System.arraycopy(chunk.cleared, 0, kept.cleared, 0, kept.cleared.length);
+        System.arraycopy(chunk.visible, 0, kept.visible, 0, kept.visible.length);
+        kept.explored = true;
+        explored.put(kept.key, kept);
+    }
+    // a search over the nominal size would generate every chunk
+    boolean isSearchable() {
+        return false;
+    }
+    Pathfinder paths() {
+        throw new IllegalStateException(NOT_SEARCHABLE);
+    }
+    void placePlayer(int x, int y) {
+        super.placePlayer(x, y);
+        // generate the neighbouring chunks ahead of time when getting close to an edge
+        int dx = x % Chunk.SIZE, dy = y % Chunk.SIZE;
+        int nextX = dx < PREFETCH_DISTANCE ? x - PREFETCH_DISTANCE
+                : dx >= Chunk.SIZE - PREFETCH_DISTANCE ? x + PREFETCH_DISTANCE : x;
+        int nextY = dy < PREFETCH_DISTANCE ? y - PREFETCH_DISTANCE
+                : dy >= Chunk.SIZE - PREFETCH_DISTANCE ? y + PREFETCH_DISTANCE : y;
+        prefetch(nextX, y);
+        prefetch(x, nextY);
+        prefetch(nextX, nextY);
+        // keep the player's chunk the most recently used one
+        lastChunk = null;
+        chunkAt(x, y);
+    }
+    private void prefetch(int x, int y) {
+        if (x >= 0 && y >= 0 && x < length && y < width)
+            chunkAt(x, y);
+    }
+}
@@ -0,0 +1,275 @@
+package leagueofwarriors;
+
+import java.util.stream.IntStream;
+
+enum CombatWinner {
+    PLAYER, ENEMY, NONE
+}
+
+class CombatResult {
+    final CombatWinner winner;
+    final int turns;
+    final int playerHp, playerMana, enemyHp, enemyMana;
+    public CombatResult(CombatWinner winner, int turns, int playerHp, int playerMana, int enemyHp, int enemyMana) {
+        this.winner = winner;
+        this.turns = turns;
+        this.playerHp = playerHp;
+        this.playerMana = playerMana;
+        this.enemyHp = enemyHp;
+        this.enemyMana = enemyMana;
+    }
+    public String toString() {
+        return winner + " after " + turns + " turns (player " + playerHp + " hp, " + playerMana +
+               " mana; enemy " + enemyHp + " hp, " + enemyMana + " mana)";
+    }
+}
+
+/*
+ * Resolves a whole battle without any UI, following the same rules as the battle screens:
+ * the player uses the strongest affordable ability (as ranked by getSpellDamage) or a basic attack,
+ * then the enemy picks a random remaining ability or basic attack and loses the ability whether it
+ * could afford it or not (retrying until something is used).
+ * The character and enemy are only read, all battle state lives in primitive fields of the resolver,
+ * so one resolver per thread can be reused for any number of battles without allocating per turn.
+ * Rolls are drawn from a GameRandom in the same order as a GameSession draws them, so a fight resolved from
+ * the stream of a session at an encounter plays out like the session would with the same choices.
+ */
+class CombatResolver {
+    // no fight should get anywhere near this, it only guards against stalemates
+    static final int MAX_TURNS = 10000;
+    private static final int ICE = 0, FIRE = 1, EARTH = 2;
+    private static final int[] SPELL_DAMAGE = {100, 150, 50};
+    private static final int[] SPELL_COST = {20, 30, 10};
+    private final GameRandom rng;
+    private int[] playerSpells = new int[3];
+    private int nrPlayerSpells;
+    private int playerHp, playerMana;
+    private boolean playerCanHalve, playerCanCrit;
+    private int playerRawDamage;
+    private final boolean[] playerImmunity = new boolean[3];
+    private int enemyHp, enemyMana, enemyDamage;
+    // remaining enemy abilities in the order they were rolled, 2 bits each (ICE, FIRE or EARTH) like in Enemy
+    private int enemySpells, nrEnemySpells;
+    private final boolean[] enemyImmunity = new boolean[3];
+    private int turns;
+    // draws from the stream, a session's one continues where the fight left it
+    public CombatResolver(GameRandom rng) {
+        this.rng = rng;
+    }
+    public CombatResolver(long seed) {
+        this(new GameRandom(seed));
+    }
+    public CombatResult fight(Character character, Enemy enemy) {
+        loadCharacter(character);
+        enemyHp = enemy.hp;
+        enemyMana = enemy.mana;
+        enemyDamage = enemy.damage;
+        enemySpells = 0;
+        nrEnemySpells = 0;
+        for (int i = 0; i < enemy.getNrAbilities(); i++)
+            addEnemySpell(spellType(enemy.getAbility(i)));
+        enemyImmunity[ICE] = enemy.iceImmunity;
+        enemyImmunity[FIRE] = enemy.fireImmunity;
+        enemyImmunity[EARTH] = enemy.earthImmunity;
+        CombatWinner winner = resolve();
+        return new CombatResult(winner, turns, playerHp, playerMana, enemyHp, enemyMana);
+    }
+    // fights an enemy rolled with the same distribution as the Enemy constructor, without creating it
+    CombatWinner fightRandomEnemy(Character character) {
+        loadCharacter(character);
+        enemyHp = 400 + rng.nextInt(1001);
+        enemyMana = 30 + rng.nextInt(81);
+        enemyDamage = 30 + rng.nextInt(71);
+        int nrAbilities = 3 + rng.nextInt(4);
+        // minimum one ability of each type
+        enemySpells = 0;
+        nrEnemySpells = 0;
+        addEnemySpell(ICE);
+        addEnemySpell(FIRE);
+        addEnemySpell(EARTH);
+        for (int i = 0; i < nrAbilities - 3; i++)
+            addEnemySpell(rng.nextInt(3));
+        enemyImmunity[FIRE] = rng.nextInt(3) == 0;
+        enemyImmunity[ICE] = rng.nextInt(3) == 0;
+        enemyImmunity[EARTH] = rng.nextInt(3) == 0;
+        return resolve();
+    }
+    int getTurns() {
+        return turns;
+    }
+    private void addEnemySpell(int type) {
+        enemySpells |= type << 2 * nrEnemySpells++;
+    }
+    // the abilities after it move down one place, like in Enemy
+    private void removeEnemySpell(int i) {
+        int below = enemySpells & (1 << 2 * i) - 1;
+        enemySpells = below | enemySpells >>> 2 * (i + 1) << 2 * i;
+        nrEnemySpells--;
+    }
+    private void loadCharacter(Character character) {
+        if (playerSpells.length < character.abilities.size())
+            playerSpells = new int[character.abilities.size()];
+        nrPlayerSpells = character.abilities.size();
+        for (int i = 0; i < nrPlayerSpells; i++)
+            playerSpells[i] = spellType(character.abilities.get(i));
+        playerCanHalve = character.canHalveDamage();
+        playerCanCrit = character.canCrit();
+        playerRawDamage = character.rawDamage();
+        playerImmunity[ICE] = character.iceImmunity;
+        playerImmunity[FIRE] = character.fireImmunity;
+        playerImmunity[EARTH] = character.earthImmunity;
+        playerHp = character.hp;
+        playerMana = character.mana;
+    }
+    private CombatWinner resolve() {
+        turns = 0;
+        while (turns < MAX_TURNS) {
+            turns++;
+            takePlayerTurn();
+            if (enemyHp == 0)
+                return CombatWinner.PLAYER;
+            takeEnemyTurn();
+            if (playerHp == 0)
+                return CombatWinner.ENEMY;
+        }
+        return CombatWinner.NONE;
+    }
+    private void takePlayerTurn() {
+        int baseDamage = playerRawDamage;
+        if (playerCanCrit && rng.nextBoolean())
+            baseDamage *= 2;
+        // strongest affordable ability, the dexterity multiplier of getSpellDamage is the same for all of them
+        int best = -1, bestDamage = 0;
+        for (int i = 0; i < nrPlayerSpells; i++) {
+            int type = playerSpells[i];
+            int damage = spellDamage(type, enemyImmunity);
+            if (SPELL_COST[type] <= playerMana && damage > bestDamage) {
+                best = type;
+                bestDamage = damage;
+            }
+        }
+        if (best != -1) {
+            playerMana -= SPELL_COST[best];
+            damageEnemy(bestDamage);
+        }
+        damageEnemy(baseDamage);
+    }
+    private void takeEnemyTurn() {
+        boolean hasUsed;
+        do {
+            hasUsed = true;
+            int choice = rng.nextInt(nrEnemySpells + 1);
+            if (choice != nrEnemySpells) {
+                int type = enemySpells >>> 2 * choice & 3;
+                int baseDamage = rollEnemyDamage();
+                if (enemyMana < SPELL_COST[type]) {
+                    hasUsed = false;
+                } else {
+                    enemyMana -= SPELL_COST[type];
+                    damagePlayer(spellDamage(type, playerImmunity));
+                    damagePlayer(baseDamage);
+                }
+                // enemy cannot regen mana, so the ability is lost either way
+                removeEnemySpell(choice);
+            } else {
+                damagePlayer(rollEnemyDamage());
+            }
+        } while (!hasUsed);
+    }
+    private int rollEnemyDamage() {
+        if (rng.nextBoolean())
+            return enemyDamage * 2;
+        return enemyDamage;
+    }
+    private void damageEnemy(int damage) {
+        if (rng.nextBoolean())
+            damage /= 2;
+        enemyHp = Math.max(enemyHp - damage, 0);
+    }
+    private void damagePlayer(int damage) {
+        if (playerCanHalve && rng.nextBoolean())
+            damage /= 2;
+        playerHp = Math.max(playerHp - damage, 0);
+    }
+    private static int spellDamage(int type, boolean[] immunity) {
+        // if immune to an ability, deal only 20% spell damage
+        if (immunity[type])
+            return SPELL_DAMAGE[type] / 5;
+        return SPELL_DAMAGE[type];
+    }
+    private static int spellType(Spell spell) {
+        if (spell instanceof IceSpell)
+            return ICE;
+        if (spell instanceof FireSpell)
+            return FIRE;
+        return EARTH;
+    }
+}
+
+class CombatStats {
+    long battles, playerWins, enemyWins, draws, totalTurns;
+    void add(CombatWinner winner, int turns) {
+        battles++;
+        totalTurns += turns;
+        switch (winner) {
+            case PLAYER:
+                playerWins++;
+                break;
+            case ENEMY:
+                enemyWins++;
+                break;
+            default:
+                draws++;
+                break;
+        }
+    }
+    CombatStats merge(CombatStats other) {
+        battles += other.battles;
+        playerWins += other.playerWins;
+        enemyWins += other.enemyWins;
+        draws += other.draws;
+        totalTurns += other.totalTurns;
+        return this;
+    }
+    public String toString() {
+        if (battles == 0)
+            return "no battles";
+        return String.format("win rate %.2f%%, avg turns %.2f (%d battles)",
+                100.0 * playerWins / battles, (double) totalTurns / battles, battles);
+    }
+}
+
+class CombatSimulator {
+    private static final String[] PROFESSIONS = {"Warrior", "Mage", "Rogue"};
+    // runs the battles split evenly over all cores; the result only depends on the seed and the core count
+    public static CombatStats simulate(String profession, int level, int battles, long seed) {
+        Character character = CharacterFactory.create(profession, profession, 0, level);
+        int workers = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), battles));
+        GameRandom root = new GameRandom(seed);
+        GameRandom[] rngs = new GameRandom[workers];
+        for (int i = 0; i < workers; i++)
+            rngs[i] = root.split();
+        return IntStream.range(0, workers).parallel().mapToObj(w -> {
+            CombatResolver resolver = new CombatResolver(rngs[w]);
+            CombatStats stats = new CombatStats();
+            int count = battles / workers + (w < battles % workers ? 1 : 0);
+            for (int i = 0; i < count; i++)
+                stats.add(resolver.fightRandomEnemy(character), resolver.getTurns());
+            return stats;
+        }).reduce(CombatStats::merge).orElseGet(CombatStats::new);
+    }
+    // prints the win rate of every profession at every level against random enemies
+    public static void main(String[] args) {
+        int battles = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+        for (String profession : PROFESSIONS) {
+            for (int level = 1; level <= 30; level++) {
+                long start = System.nanoTime();
+                CombatStats stats = simulate(profession, level, battles, seed);
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("%-8s level %2d: %s, %.0f battles/s%n", profession, level, stats,
+                        battles * 1e9 / elapsed);
+            }
+        }
+    }
+}
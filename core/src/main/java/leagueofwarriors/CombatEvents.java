@@ -0,0 +1,150 @@
+package leagueofwarriors;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+enum CombatEventType {
+    // value is the damage left after halving / after doubling / dealt by the basic attack
+    DAMAGE_HALVED, CRIT, BASIC_ATTACK,
+    // spell is the ability used
+    SPELL_USED,
+    // value is the damage received, after any halving
+    DAMAGE_TAKEN,
+    // value is the new level
+    LEVEL_UP,
+    // value is the hp regenerated, extra the mana regenerated
+    SANCTUARY_REGEN,
+    ENEMY_ENCOUNTERED
+}
+
+interface CombatEventListener {
+    void onEvent(CombatEventType type, Entity source, Spell spell, int value, int extra);
+}
+
+/*
+ * Ring buffer of combat events, preallocated as parallel arrays so publishing never allocates.
+ * There is one producer (the thread running the fight); any number of consumers read it at their own
+ * pace by keeping a cursor. The slot of the next sequence number may be half written at any time, so only the
+ * last capacity - 1 events are readable; a consumer that falls further behind skips the overwritten events.
+ */
+class CombatEventBus {
+    static final int DEFAULT_CAPACITY = 1024;
+    private static final CombatEventType[] TYPES = CombatEventType.values();
+    private static final CombatEventBus DEFAULT = new CombatEventBus(DEFAULT_CAPACITY);
+    private final int mask;
+    private final byte[] types;
+    private final Entity[] sources;
+    private final Spell[] spells;
+    private final int[] values, extras;
+    // sequence number of the next event, everything below it is readable
+    private volatile long published;
+    public CombatEventBus(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        mask = capacity - 1;
+        types = new byte[capacity];
+        sources = new Entity[capacity];
+        spells = new Spell[capacity];
+        values = new int[capacity];
+        extras = new int[capacity];
+    }
+    // the bus entities publish to unless they are given another one
+    public static CombatEventBus getDefault() {
+        return DEFAULT;
+    }
+    public void publish(CombatEventType type, Entity source, Spell spell, int value, int extra) {
+        long sequence = published;
+        // the slot is overwritten only after the last publish is visible, which is what drain() checks against
+        VarHandle.storeStoreFence();
+        int i = (int) sequence & mask;
+        types[i] = (byte) type.ordinal();
+        sources[i] = source;
+        spells[i] = spell;
+        values[i] = value;
+        extras[i] = extra;
+        // the volatile write makes the slot visible to consumers on other threads
+        published = sequence + 1;
+    }
+    public void publish(CombatEventType type, Entity source, int value) {
+        publish(type, source, null, value, 0);
+    }
+    // a new consumer starts after everything published so far
+    public long cursor() {
+        return published;
+    }
+    // passes every event from the cursor on to the listener and returns the cursor to continue from
+    public long drain(long cursor, CombatEventListener listener) {
+        long end = published;
+        // the slot of end - capacity is the one being written
+        if (end - cursor > mask)
+            cursor = end - mask;
+        for (; cursor < end; cursor++) {
+            int i = (int) cursor & mask;
+            CombatEventType type = TYPES[types[i]];
+            Entity source = sources[i];
+            Spell spell = spells[i];
+            int value = values[i], extra = extras[i];
+            // the reads above are done before published is read again
+            VarHandle.acquireFence();
+            // the producer lapped this slot while it was being read
+            if (published - cursor > mask)
+                continue;
+            listener.onEvent(type, source, spell, value, extra);
+        }
+        return end;
+    }
+}
+
+// counts events by type, for consumers that only need totals
+class CombatEventCounter implements CombatEventListener {
+    final long[] counts = new long[CombatEventType.values().length];
+    final long[] values = new long[CombatEventType.values().length];
+    public void onEvent(CombatEventType type, Entity source, Spell spell, int value, int extra) {
+        counts[type.ordinal()]++;
+        values[type.ordinal()] += value;
+    }
+    void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(values, 0);
+    }
+}
+
+// the sentences the frontends log for the events
+class CombatEventText {
+    private static String nameOf(Entity entity) {
+        if (entity instanceof Character)
+            return ((Character) entity).name;
+        return "The enemy";
+    }
+    static void append(StringBuilder text, CombatEventType type, Entity source, Spell spell, int value, int extra) {
+        String name = nameOf(source);
+        switch (type) {
+            case DAMAGE_HALVED:
+                text.append(name).append(" has received only half damage!");
+                break;
+            case CRIT:
+                text.append(name).append(" rolled a critical hit for ").append(value).append(" damage!");
+                break;
+            case BASIC_ATTACK:
+                text.append(name).append(" has used Basic Attack.");
+                break;
+            case SPELL_USED:
+                text.append(name).append(" has used ").append(spell.getClass().getSimpleName())
+                    .append(" and Basic Attack.");
+                break;
+            case DAMAGE_TAKEN:
+                text.append(name).append(" took ").append(value).append(" damage.");
+                break;
+            case LEVEL_UP:
+                text.append(name).append(" leveled up to level ").append(value).append('!');
+                break;
+            case SANCTUARY_REGEN:
+                text.append(name).append(" rested in a sanctuary and regenerated ").append(value)
+                    .append(" hp and ").append(extra).append(" mana.");
+                break;
+            case ENEMY_ENCOUNTERED:
+                text.append(name).append(" has encountered an enemy!");
+                break;
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package leagueofwarriors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+interface Battle {
+    void receiveDamage(int damage);
+    int getDamage();
+    int getSpellDamage(Spell ability, Entity target);
+}
+
+interface Element <T extends Entity> {
+    void accept(Visitor<T> visitor);
+}
+
+abstract class Entity implements Battle, Element<Entity> {
+    int hp, mana;
+    int maxHp, maxMana;
+    boolean fireImmunity, iceImmunity, earthImmunity;
+    // where hits, crits and used abilities are reported instead of showing dialogs
+    CombatEventBus events = CombatEventBus.getDefault();
+    // rolls halved damage and crits, a session replaces it with its own seeded stream
+    GameRandom random = GameRandom.forThread();
+    public Entity(int maxHp, int maxMana, boolean fireImmunity, boolean iceImmunity, boolean earthImmunity) {
+        this.maxHp = maxHp;
+        hp = maxHp;
+        this.maxMana = maxMana;
+        mana = maxMana;
+        this.fireImmunity = fireImmunity;
+        this.iceImmunity = iceImmunity;
+        this.earthImmunity = earthImmunity;
+    }
+    public Entity(int maxHp, int maxMana) {
+        this(maxHp, maxMana, false, false, false);
+    }
+    public Entity() {
+        this(0, 0);
+    }
+    public int regenHp(int hp) {
+        int oldHp = this.hp;
+        this.hp = Math.min(this.hp + hp, maxHp);
+        // if health is truncated, less than hp will be regened
+        return this.hp - oldHp;
+    }
+    public int regenMana(int mana) {
+        int oldMana = this.mana;
+        this.mana = Math.min(this.mana + mana, maxMana);
+        // if health is truncated, less than hp will be regened
+        return this.mana - oldMana;
+    }
+    public void loseHp(int hp) {
+        this.hp = Math.max(this.hp - hp, 0);
+    }
+    public void loseMana(int mana) {
+        this.mana = Math.max(this.mana - mana, 0);
+    }
+    public boolean useAbility(Spell ability, Entity target, int baseDamage) {
+        if (mana < ability.manaCost)
+            return false;
+        loseMana(ability.manaCost);
+        reportCrit(baseDamage);
+        events.publish(CombatEventType.SPELL_USED, this, ability, ability.damage, 0);
+        target.accept(ability);
+        target.receiveDamage(baseDamage);
+        return true;
+    }
+    // whether damage rolled by getDamage was doubled
+    abstract boolean isCrit(int damage);
+    // a crit is reported when its damage is dealt: a roll can be shown first, or not be used for want of mana
+    void reportCrit(int damage) {
+        if (isCrit(damage))
+            events.publish(CombatEventType.CRIT, this, damage);
+    }
+    public void accept(Visitor<Entity> visitor) {
+        visitor.visit(this);
+    }
+}
+
+/*
+ * Stats of a profession at every level, shared by all characters of that profession.
+ * The multiplier of level up will have a sqrt(x) progression (having diminished returns at higher levels)
+ * Therefore, it will follow the function sqrt(a*(x-2)+b^2), where 'b' is the multiplier at first level up (1 -> 2)
+ * and 'a' is a scaling factor which will determine how fast the multiplier drops off in following level ups.
+ * */
+class ProfessionTemplate {
+    static final int MAX_LEVEL = 30;
+    static final ProfessionTemplate WARRIOR = new ProfessionTemplate(150, 20, 30, 1100, 20, true, false, false);
+    static final ProfessionTemplate MAGE = new ProfessionTemplate(30, 20, 100, 650, 60, false, true, false);
+    static final ProfessionTemplate ROGUE = new ProfessionTemplate(50, 90, 40, 900, 40, false, false, true);
+    final boolean fireImmunity, iceImmunity, earthImmunity;
+    // indexed by level, from 1 to MAX_LEVEL
+    private final int[] strength, charisma, dexterity, maxHp, maxMana;
+    public ProfessionTemplate(int strength, int charisma, int dexterity, int maxHp, int maxMana,
+                              boolean fireImmunity, boolean iceImmunity, boolean earthImmunity) {
+        this.fireImmunity = fireImmunity;
+        this.iceImmunity = iceImmunity;
+        this.earthImmunity = earthImmunity;
+        this.strength = curve(strength);
+        this.charisma = curve(charisma);
+        this.dexterity = curve(dexterity);
+        this.maxHp = curve(maxHp);
+        this.maxMana = curve(maxMana);
+    }
+    private static int[] curve(int base) {
+        int[] values = new int[MAX_LEVEL + 1];
+        values[1] = base;
+        for (int level = 2; level <= MAX_LEVEL; level++) {
+            double multiplier = Math.sqrt(0.125 * (level - 2) + 1.21);
+            values[level] = (int) Math.round((double) base * multiplier);
+        }
+        return values;
+    }
+    int strength(int level) {
+        return strength[level];
+    }
+    int charisma(int level) {
+        return charisma[level];
+    }
+    int dexterity(int level) {
+        return dexterity[level];
+    }
+    int maxHp(int level) {
+        return maxHp[level];
+    }
+    int maxMana(int level) {
+        return maxMana[level];
+    }
+}
+
+abstract class Character extends Entity {
+    final ArrayList<Spell> abilities;
+    final String name;
+    final ProfessionTemplate template;
+    int exp, level, strength, charisma, dexterity;
+    static final int[] expMilestones;
+    // exp needed to get from level 1 to each level, indexed from 1
+    static final int[] expTotals;
+    static {
+        // max level is 30, indexing from 1; the milestone of level 30 is only shown, never reached
+        expMilestones = new int[ProfessionTemplate.MAX_LEVEL + 1];
+        int firstMilestone = 50;
+        expMilestones[1] = firstMilestone;
+        // 10% slower progression to next level compared to last level
+        for (int i = 2; i <= ProfessionTemplate.MAX_LEVEL; i++) {
+            expMilestones[i] = 11 * expMilestones[i - 1] / 10;
+        }
+        expTotals = new int[ProfessionTemplate.MAX_LEVEL + 1];
+        for (int i = 2; i <= ProfessionTemplate.MAX_LEVEL; i++) {
+            expTotals[i] = expTotals[i - 1] + expMilestones[i - 1];
+        }
+    }
+    public Character(ProfessionTemplate template, ArrayList<Spell> abilities, String name, int level, int exp) {
+        super(0, 0, template.fireImmunity, template.iceImmunity, template.earthImmunity);
+        this.abilities = abilities;
+        this.template = template;
+        this.name = name;
+        this.exp = exp;
+        // stats of any level are looked up directly instead of leveling up one level at a time
+        setLevel(Math.max(1, Math.min(level, ProfessionTemplate.MAX_LEVEL)));
+        // start with hp and mana equal to max
+        regenHp(maxHp);
+        regenMana(maxMana);
+    }
+    public Character(ProfessionTemplate template, String name, int level, int exp) {
+        this(template, new ArrayList<>(), name, level, exp);
+    }
+    public Character(int strength, int charisma, int dexterity,
+                     int maxHp, int maxMana, boolean fireImmunity,
+                     boolean iceImmunity, boolean earthImmunity,
+                     ArrayList<Spell> abilities, String name, int level, int exp) {
+        this(new ProfessionTemplate(strength, charisma, dexterity, maxHp, maxMana,
+                                    fireImmunity, iceImmunity, earthImmunity), abilities, name, level, exp);
+    }
+    public Character(int strength, int charisma, int dexterity,
+                     int maxHp, int maxMana, boolean fireImmunity,
+                     boolean iceImmunity, boolean earthImmunity,
+                     String name, int level, int exp) {
+        this(strength, charisma, dexterity, maxHp, maxMana, fireImmunity, iceImmunity, earthImmunity, new ArrayList<>(), name, level, exp);
+    }
+    public Character(int strength, int charisma, int dexterity,
+                     int maxHp, int maxMana, boolean fireImmunity,
+                     boolean iceImmunity, boolean earthImmunity,
+                     ArrayList<Spell> abilities, String name) {
+        this(strength, charisma, dexterity, maxHp, maxMana, fireImmunity, iceImmunity, earthImmunity, abilities, name, 1, 0);
+    }
+    public Character(int strength, int charisma, int dexterity,
+                     int maxHp, int maxMana, ArrayList<Spell> abilities, String name) {
+        this(strength, charisma, dexterity, maxHp, maxMana, false, false, false, abilities, name);
+    }
+    public Character(int strength, int charisma, int dexterity,
+                     int maxHp, int maxMana, String name) {
+        this(strength, charisma, dexterity, maxHp, maxMana, new ArrayList<>(), name);
+    }
+    public Character(int maxHp, int maxMana, String name) {
+        this(0, 0, 0, maxHp, maxMana, name);
+    }
+    private void setLevel(int level) {
+        this.level = level;
+        strength = template.strength(level);
+        charisma = template.charisma(level);
+        dexterity = template.dexterity(level);
+        maxHp = template.maxHp(level);
+        maxMana = template.maxMana(level);
+    }
+    // stat checks deciding whether received damage can be halved and dealt damage can be doubled
+    abstract boolean canHalveDamage();
+    abstract boolean canCrit();
+    // damage of a basic attack before a possible crit
+    abstract int rawDamage();
+    // the professions only differ by the stat checks and the raw damage above
+    public void receiveDamage(int damage) {
+        if (canHalveDamage() && random.nextBoolean()) {
+            damage /= 2;
+            events.publish(CombatEventType.DAMAGE_HALVED, this, damage);
+        }
+        loseHp(damage);
+        events.publish(CombatEventType.DAMAGE_TAKEN, this, damage);
+    }
+    public int getDamage() {
+        int damage = rawDamage();
+        if (canCrit() && random.nextBoolean())
+            damage *= 2;
+        return damage;
+    }
+    boolean isCrit(int damage) {
+        return canCrit() && damage == 2 * rawDamage();
+    }
+    // returns true if level up occurred and false otherwise
+    public boolean gainExp(int exp) {
+        this.exp += exp;
+        // if max level
+        if (level == ProfessionTemplate.MAX_LEVEL)
+            return false;
+        // a level is passed when the exp left over after it is above its milestone, so the final level
+        // is the highest one whose total exp is below the total gained so far
+        long total = (long) expTotals[level] + this.exp;
+        int low = level, high = ProfessionTemplate.MAX_LEVEL;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (expTotals[mid] < total)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+        if (low == level)
+            return false;
+        // exp left over carries over to the new level
+        this.exp = (int) (total - expTotals[low]);
+        setLevel(low);
+        events.publish(CombatEventType.LEVEL_UP, this, low);
+        return true;
+    }
+    public int getSpellDamage(Spell ability, Entity target) {
+        int damage = ability.damage;
+        // if immune to an ability, deal only 20% spell damage
+        if (ability instanceof IceSpell && target.iceImmunity)
+            damage /= 5;
+        else if (ability instanceof FireSpell && target.fireImmunity)
+            damage /= 5;
+        else if (ability instanceof EarthSpell && target.earthImmunity)
+            damage /= 5;
+        // dexterity influences ability power
+        damage *= (int) Math.round(Math.log10(dexterity));
+        return damage;
+    }
+    public String toString() {
+//        return getClass().getSimpleName() + " " + name + ": strength = " + strength +
+//               ", charisma = " + charisma + ", dexterity = " + dexterity +
+//               ", level = " + level + ", exp = " + exp + ", maxHp = " + maxHp +
+//                ", maxMana = " + maxMana + ", immunities(f,i,e) = " + fireImmunity +
+//                " " + iceImmunity + " " + earthImmunity + "\n";
+        return getClass().getSimpleName() + " " + name;
+    }
+}
+
+class Warrior extends Character {
+    public Warrior(String name, int exp, int level) {
+        super(ProfessionTemplate.WARRIOR, name, level, exp);
+        abilities.add(EarthSpell.INSTANCE);
+    }
+    public Warrior(String name) {
+        this(name, 0, 1);
+    }
+    boolean canHalveDamage() {
+        return charisma + dexterity > 75;
+    }
+    boolean canCrit() {
+        return strength > 200;
+    }
+    int rawDamage() {
+        return (int) ((double) 20 * Math.sqrt(strength));
+    }
+}
+
+class Mage extends Character {
+    public Mage(String name, int exp, int level) {
+        super(ProfessionTemplate.MAGE, name, level, exp);
+        abilities.add(EarthSpell.INSTANCE);
+        abilities.add(FireSpell.INSTANCE);
+        abilities.add(IceSpell.INSTANCE);
+    }
+    public Mage(String name) {
+        this(name, 0, 1);
+    }
+    boolean canHalveDamage() {
+        return strength + charisma > 76;
+    }
+    boolean canCrit() {
+        return dexterity > 132;
+    }
+    int rawDamage() {
+        return (int) ((double) 25 * Math.sqrt(strength + charisma));
+    }
+}
+
+class Rogue extends Character {
+    public Rogue(String name, int exp, int level) {
+        super(ProfessionTemplate.ROGUE, name, level, exp);
+        abilities.add(EarthSpell.INSTANCE);
+        abilities.add(IceSpell.INSTANCE);
+    }
+    public Rogue(String name) {
+        this(name, 0, 1);
+    }
+    boolean canHalveDamage() {
+        return strength + dexterity > 130;
+    }
+    boolean canCrit() {
+        return charisma > 120;
+    }
+    int rawDamage() {
+        return (int) ((double) 15 * Math.sqrt(dexterity + strength));
+    }
+}
+
+class CharacterFactory {
+    public static Character create(String type, String name, int exp, int level) {
+        switch (type) {
+            case "Warrior":
+                return new Warrior(name, exp, level);
+            case "Mage":
+                return new Mage(name, exp, level);
+            case "Rogue":
+                return new Rogue(name, exp, level);
+            default:
+                return null;
+        }
+    }
+    public static Character create(String type, String name) {
+        switch (type) {
+            case "Warrior":
+                return new Warrior(name);
+            case "Mage":
+                return new Mage(name);
+            case "Rogue":
+                return new Rogue(name);
+            default:
+                return null;
+        }
+    }
+}
+
+/*
+ * The abilities left to an enemy are kept in the order they were rolled, 2 bits each (an index in SPELLS) in one
+ * int, so losing one is a shift and an enemy holds no list. An enemy can be rolled again to be reused, see EnemyPool.
+ */
+class Enemy extends Entity {
+    private static final Spell[] SPELLS = {IceSpell.INSTANCE, FireSpell.INSTANCE, EarthSpell.INSTANCE};
+    private static final int ICE = 0, FIRE = 1, EARTH = 2;
+    int damage;
+    private int abilities, nrAbilities;
+    public Enemy() {
+        this(GameRandom.forThread());
+    }
+    public Enemy(GameRandom rng) {
+        roll(rng);
+    }
+    private Enemy(Enemy other) {
+        copyFrom(other);
+    }
+    // new stats and abilities, drawn from the stream in the same order as always so recordings replay the same
+    void roll(GameRandom rng) {
+        random = rng;
+        int hp = 400 + rng.nextInt(1001);
+        int mana = 30 + rng.nextInt(81);
+        damage = 30 + rng.nextInt(71);
+        int nrRolled = 3 + rng.nextInt(4);
+        // minimum one ability of each type
+        abilities = 0;
+        nrAbilities = 0;
+        addAbility(ICE);
+        addAbility(FIRE);
+        addAbility(EARTH);
+        for (int i = 0; i < nrRolled - 3; i++)
+            addAbility(rng.nextInt(3));
+        // 33% chance for each spell immunity
+        fireImmunity = rng.nextInt(3) == 0;
+        iceImmunity = rng.nextInt(3) == 0;
+        earthImmunity = rng.nextInt(3) == 0;
+        maxHp = hp;
+        this.hp = hp;
+        maxMana = mana;
+        this.mana = mana;
+    }
+    private void addAbility(int spell) {
+        abilities |= spell << 2 * nrAbilities++;
+    }
+    public int getNrAbilities() {
+        return nrAbilities;
+    }
+    public Spell getAbility(int i) {
+        return SPELLS[abilities >>> 2 * i & 3];
+    }
+    // the abilities after it move down one place, like in a list
+    public void removeAbility(int i) {
+        int below = abilities & (1 << 2 * i) - 1;
+        abilities = below | abilities >>> 2 * (i + 1) << 2 * i;
+        nrAbilities--;
+    }
+    void copyFrom(Enemy other) {
+        maxHp = other.maxHp;
+        maxMana = other.maxMana;
+        fireImmunity = other.fireImmunity;
+        iceImmunity = other.iceImmunity;
+        earthImmunity = other.earthImmunity;
+        hp = other.hp;
+        mana = other.mana;
+        damage = other.damage;
+        abilities = other.abilities;
+        nrAbilities = other.nrAbilities;
+        random = other.random;
+        events = other.events;
+    }
+    // same stats and remaining abilities
+    Enemy copy() {
+        return new Enemy(this);
+    }
+    public void receiveDamage(int damage) {
+        if (random.nextBoolean()) {
+            damage /= 2;
+            events.publish(CombatEventType.DAMAGE_HALVED, this, damage);
+        }
+        loseHp(damage);
+        events.publish(CombatEventType.DAMAGE_TAKEN, this, damage);
+    }
+    public int getDamage() {
+        if (random.nextBoolean())
+            return damage * 2;
+        return damage;
+    }
+    boolean isCrit(int damage) {
+        return damage == 2 * this.damage;
+    }
+    public int getSpellDamage(Spell ability, Entity target) {
+        int damage = ability.damage;
+        // if immune to an ability, deal only 20% spell damage
+        if (ability instanceof IceSpell && target.iceImmunity)
+            damage /= 5;
+        else if (ability instanceof FireSpell && target.fireImmunity)
+            damage /= 5;
+        else if (ability instanceof EarthSpell && target.earthImmunity)
+            damage /= 5;
+        return damage;
+    }
+}
+
+/*
+ * Enemies that were fought, to be rolled again for the next encounters instead of allocating new ones.
+ * Confined to one thread like the session using it; a session only ever fights one enemy at a time,
+ * so a pool stays as small as the number of sessions sharing it.
+ */
+class EnemyPool {
+    private Enemy[] free = new Enemy[4];
+    private int nrFree;
+    public Enemy obtain(GameRandom rng) {
+        if (nrFree == 0)
+            return new Enemy(rng);
+        Enemy enemy = free[--nrFree];
+        free[nrFree] = null;
+        enemy.roll(rng);
+        return enemy;
+    }
+    // an enemy with the same state as another one, for restoring a checkpoint
+    public Enemy obtainCopy(Enemy other) {
+        if (nrFree == 0)
+            return other.copy();
+        Enemy enemy = free[--nrFree];
+        free[nrFree] = null;
+        enemy.copyFrom(other);
+        return enemy;
+    }
+    // the enemy must not be used any more by whoever released it
+    public void release(Enemy enemy) {
+        if (nrFree == free.length)
+            free = Arrays.copyOf(free, 2 * nrFree);
+        free[nrFree++] = enemy;
+    }
+}
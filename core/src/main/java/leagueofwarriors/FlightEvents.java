@@ -0,0 +1,88 @@
+package leagueofwarriors;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * JDK Flight Recorder events of the game, all disabled unless a recording turns them on, e.g.
+ *   java -XX:StartFlightRecording:settings=default,settings=jfr/leagueofwarriors.jfc,filename=game.jfr ...
+ * While disabled, shouldCommit() is a constant false once JIT compiled and the event objects are
+ * scalar replaced, so the fields are only filled in when something is actually recording.
+ */
+@Name("leagueofwarriors.MapGenerated")
+@Label("Map Generated")
+@Category({"League of Warriors", "Map"})
+@Description("Generation of a new map")
+@Enabled(false)
+@StackTrace(false)
+class MapGeneratedEvent extends Event {
+    @Label("Length")
+    int length;
+    @Label("Width")
+    int width;
+    @Label("Minimum Distance")
+    int minDistance;
+    @Label("Retries")
+    @Description("Whole maps thrown away by the generator before one met the quotas")
+    int retries;
+    @Label("Quota Cells")
+    @Description("Cells converted afterwards to reach 2 sanctuaries and 4 enemies")
+    int quotaCells;
+}
+
+@Name("leagueofwarriors.PlayerMove")
+@Label("Player Move")
+@Category({"League of Warriors", "Map"})
+@Enabled(false)
+@StackTrace(false)
+class PlayerMoveEvent extends Event {
+    @Label("Direction")
+    String direction;
+    @Label("Cell Type")
+    @Description("Type of the cell the player moved onto")
+    String cellType;
+    @Label("Result")
+    String result;
+}
+
+@Name("leagueofwarriors.CombatTurn")
+@Label("Combat Turn")
+@Category({"League of Warriors", "Combat"})
+@Description("One turn of the player or of the enemy")
+@Enabled(false)
+@StackTrace(false)
+class CombatTurnEvent extends Event {
+    @Label("Attacker")
+    String attacker;
+    @Label("Ability")
+    @Description("Ability used, or Basic attack")
+    String ability;
+    @Label("Damage Dealt")
+    int damage;
+    @Label("Mana Spent")
+    int manaSpent;
+    @Label("Retries")
+    @Description("Abilities the enemy drew but could not afford before using one")
+    int retries;
+}
+
+@Name("leagueofwarriors.AccountsLoaded")
+@Label("Accounts Loaded")
+@Category({"League of Warriors", "Accounts"})
+@Enabled(false)
+@StackTrace(false)
+class AccountsLoadedEvent extends Event {
+    @Label("Source")
+    String source;
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+    @Label("Accounts")
+    int accounts;
+}
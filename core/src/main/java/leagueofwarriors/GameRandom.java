@@ -0,0 +1,87 @@
+package leagueofwarriors;
+
+/*
+ * The source of every random roll of the game (map generation, enemy stats, crits, halved damage,
+ * sanctuary regen). A session, a simulation or a thread owns one and hands it to its maps and entities,
+ * so nothing allocates per roll, nothing is shared between threads and a whole session can be replayed
+ * from its seed. Not thread safe: use split() to give another thread its own independent stream.
+ * The generator is SplitMix64 (the algorithm of SplittableRandom) with its single long of state exposed,
+ * so a replay checkpoint can save and restore the exact position in the stream.
+ */
+final class GameRandom {
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+    // seeds the per-thread defaults, only touched once per thread
+    private static final GameRandom SEEDER = new GameRandom(System.nanoTime() ^ System.currentTimeMillis() * GAMMA);
+    private static final ThreadLocal<GameRandom> THREAD_DEFAULT = ThreadLocal.withInitial(() -> {
+        synchronized (SEEDER) {
+            return SEEDER.split();
+        }
+    });
+    private final long seed;
+    private long state;
+    public GameRandom(long seed) {
+        this.seed = seed;
+        this.state = seed;
+    }
+    // unseeded stream of the current thread, for entities and maps created outside of a session
+    public static GameRandom forThread() {
+        return THREAD_DEFAULT.get();
+    }
+    // a random seed for a new session
+    public static long newSeed() {
+        synchronized (SEEDER) {
+            return SEEDER.nextLong();
+        }
+    }
+    public long getSeed() {
+        return seed;
+    }
+    // position in the stream, restoring it with setState repeats every roll made after it
+    long getState() {
+        return state;
+    }
+    void setState(long state) {
+        this.state = state;
+    }
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    public long nextLong() {
+        return mix64(state += GAMMA);
+    }
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+    // uniform in [0, bound), rejecting the values that would bias the modulo
+    public int nextInt(int bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        int r = nextInt();
+        int m = bound - 1;
+        if ((bound & m) == 0)
+            return r & m;
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = nextInt() >>> 1)
+            ;
+        return r;
+    }
+    public long nextLong(long bound) {
+        if (bound <= 0)
+            throw new IllegalArgumentException("bound must be positive");
+        long r = nextLong();
+        long m = bound - 1;
+        if ((bound & m) == 0)
+            return r & m;
+        for (long u = r >>> 1; u + m - (r = u % bound) < 0; u = nextLong() >>> 1)
+            ;
+        return r;
+    }
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+    // an independent stream for another thread or subsystem, derived deterministically from this one
+    public GameRandom split() {
+        return new GameRandom(mix64(nextLong()));
+    }
+}
@@ -0,0 +1,509 @@
+package leagueofwarriors;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+enum TurnResult {
+    MOVED, IMPOSSIBLE_MOVE, ENEMY_ENCOUNTERED, SANCTUARY, LEVEL_COMPLETED,
+    NOT_ENOUGH_MANA, ENEMY_TURN, ENEMY_KILLED, PLAYER_DIED
+}
+
+/*
+ * The rules of one run of a character, from choosing it until it dies, without any UI.
+ * Every roll comes from a GameRandom seeded at the start, and every input (a move or an attack) goes
+ * through move() or attack() and is recorded, so the seed and the inputs are enough to replay the run.
+ */
+class GameSession {
+    // input codes, as stored in a recording
+    static final byte NORTH = 0, SOUTH = 1, EAST = 2, WEST = 3, BASIC_ATTACK = 4;
+    private static final String[] DIRECTIONS = {"North", "South", "East", "West"};
+    // spell i of the character is BASIC_ATTACK + 1 + i
+    static final int MAX_SPELLS = 3;
+    private final GameRandom rng;
+    private final boolean testMap;
+    // cells on each side of the maps in world mode, 0 for the usual small maps
+    private final int worldSize;
+    private final SessionRecording recording;
+    Character character;
+    Grid map;
+    Enemy enemy;
+    // the enemies fought are reused for the next encounters
+    private final EnemyPool enemies = new EnemyPool();
+    int nrLevelsCompleted, nrEnemiesKilled;
+    // results of the last level completed or enemy killed, for the messages shown about it
+    int expGained;
+    boolean leveledUp;
+    String lastMessage;
+    // base damage of the next attack, rolled when the abilities are shown so it matches what is used
+    private int baseDamage = -1;
+    private int turns;
+    private boolean over;
+    // cells seen around the player, on every map of the session
+    private int sightRadius;
+    public GameSession(Character character, long seed, boolean testMap, boolean record) {
+        this(character, seed, testMap, record, 0);
+    }
+    // with a world size, every map is a ChunkedGrid of worldSize x worldSize cells generated as it is explored
+    public GameSession(Character character, long seed, boolean testMap, boolean record, int worldSize) {
+        if (worldSize < 0 || worldSize > 0 && (testMap || worldSize < Chunk.SIZE))
+            throw new IllegalArgumentException("World size must be at least " + Chunk.SIZE +
+                                               " and not used with the test map: " + worldSize);
+        this.rng = new GameRandom(seed);
+        this.testMap = testMap;
+        this.worldSize = worldSize;
+        this.character = character;
+        character.random = rng;
+        recording = record ? new SessionRecording(seed, testMap, worldSize, character) : null;
+        newMap();
+    }
+    private void newMap() {
+        if (worldSize > 0)
+            map = ChunkedGrid.generateMap(worldSize, worldSize, rng.nextLong());
+        else if (testMap)
+            map = Grid.generateTestMap(rng);
+        else
+            map = Grid.generateMap(3 + rng.nextInt(8), 3 + rng.nextInt(8), rng);
+        map.character = character;
+        map.visibility.setRadius(sightRadius);
+    }
+    // only changes what is explored, so recordings replay the same with any radius
+    public void setSightRadius(int radius) {
+        if (map != null)
+            map.visibility.setRadius(radius);
+        sightRadius = radius;
+    }
+    public SessionRecording getRecording() {
+        return recording;
+    }
+    // number of inputs applied so far
+    public int getTurns() {
+        return turns;
+    }
+    public boolean isOver() {
+        return over;
+    }
+    public boolean isWorld() {
+        return worldSize > 0;
+    }
+    private void record(byte input) {
+        turns++;
+        if (recording != null)
+            recording.add(input);
+    }
+    // applies a recorded input
+    TurnResult apply(byte input) {
+        if (input < BASIC_ATTACK)
+            return move(input);
+        return attack(input - BASIC_ATTACK - 1);
+    }
+    public TurnResult move(byte direction) {
+        if (over || enemy != null)
+            throw new IllegalStateException("Cannot move now");
+        record(direction);
+        PlayerMoveEvent event = new PlayerMoveEvent();
+        event.begin();
+        CellEntityType type = null;
+        try {
+            switch (direction) {
+                case NORTH:
+                    type = map.goNorth();
+                    break;
+                case SOUTH:
+                    type = map.goSouth();
+                    break;
+                case EAST:
+                    type = map.goEast();
+                    break;
+                case WEST:
+                    type = map.goWest();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown direction " + direction);
+            }
+        } catch (ImpossibleMoveException e) {
+            lastMessage = e.getMessage();
+        }
+        TurnResult result = type == null ? TurnResult.IMPOSSIBLE_MOVE : enter(type);
+        event.end();
+        if (event.shouldCommit()) {
+            event.direction = DIRECTIONS[direction];
+            event.cellType = type == null ? null : type.name();
+            event.result = result.name();
+            event.commit();
+        }
+        return result;
+    }
+    /*
+    Walks towards the nearest target, one recorded move at a time, until something happens on the way (an enemy,
+    a sanctuary, a new map) or there is nothing left to reach. Exploring goes on from one unexplored cell to the
+    next. Returns IMPOSSIBLE_MOVE without moving when there is no route.
+    */
+    public TurnResult travel(PathTarget target, EnemyPolicy policy) {
+        if (over || enemy != null)
+            throw new IllegalStateException("Cannot move now");
+        if (!map.isSearchable())
+            throw new IllegalStateException(Grid.NOT_SEARCHABLE);
+        DistanceField field = map.paths().field(target, policy);
+        byte step = field.nextStep(map.playerX, map.playerY);
+        if (step < 0) {
+            lastMessage = target == PathTarget.UNEXPLORED ? "Nothing left to explore" : "No route to a " +
+                          target.name().toLowerCase();
+            return TurnResult.IMPOSSIBLE_MOVE;
+        }
+        TurnResult result;
+        do {
+            result = move(step);
+        } while (result == TurnResult.MOVED && (step = field.nextStep(map.playerX, map.playerY)) >= 0);
+        return result;
+    }
+    private TurnResult enter(CellEntityType type) {
+        switch (type) {
+            case ENEMY:
+                enemy = enemies.obtain(rng);
+                enemy.events = character.events;
+                character.events.publish(CombatEventType.ENEMY_ENCOUNTERED, character, 0);
+                return TurnResult.ENEMY_ENCOUNTERED;
+            case SANCTUARY:
+                int maxHp = character.maxHp;
+                int maxMana = character.maxMana;
+                // + 1 for rng bound because bound is excluded
+                int regenedHp = character.regenHp(maxHp / 3 + rng.nextInt(2 * maxHp / 3 + 1));
+                int regenedMana = character.regenMana(maxMana / 3 + rng.nextInt(2 * maxMana / 3 + 1));
+                character.events.publish(CombatEventType.SANCTUARY_REGEN, character, null, regenedHp, regenedMana);
+                return TurnResult.SANCTUARY;
+            case PORTAL:
+                nrLevelsCompleted++;
+                expGained = 5 * nrLevelsCompleted;
+                leveledUp = character.gainExp(expGained);
+                // regen is truncated so overflow is not relevant
+                character.regenMana(character.maxMana);
+                character.regenHp(character.maxHp);
+                newMap();
+                return TurnResult.LEVEL_COMPLETED;
+                // default includes VOID/PLAYER cells
+            default:
+                return TurnResult.MOVED;
+        }
+    }
+    int getBaseDamageIfRolled() {
+        return baseDamage;
+    }
+    GameRandom getRandom() {
+        return rng;
+    }
+    public int getBaseDamage() {
+        if (baseDamage < 0)
+            baseDamage = character.getDamage();
+        return baseDamage;
+    }
+    // spell is the index of an ability of the character, or -1 for a basic attack
+    public TurnResult attack(int spell) {
+        if (over || enemy == null)
+            throw new IllegalStateException("No enemy to attack");
+        if (spell < -1 || spell >= MAX_SPELLS || spell >= character.abilities.size())
+            throw new IllegalArgumentException("Unknown ability " + spell);
+        record((byte) (BASIC_ATTACK + 1 + spell));
+        CombatTurnEvent event = new CombatTurnEvent();
+        event.begin();
+        int enemyHp = enemy.hp, mana = character.mana;
+        int damage = getBaseDamage();
+        Spell ability = spell >= 0 ? character.abilities.get(spell) : null;
+        if (ability != null) {
+            // if it returns false, it did not have enough mana to use it
+            if (!character.useAbility(ability, enemy, damage))
+                return TurnResult.NOT_ENOUGH_MANA;
+        } else {
+            character.reportCrit(damage);
+            character.events.publish(CombatEventType.BASIC_ATTACK, character, damage);
+            enemy.receiveDamage(damage);
+        }
+        event.end();
+        if (event.shouldCommit())
+            commitTurn(event, character, ability, enemyHp - enemy.hp, mana - character.mana, 0);
+        baseDamage = -1;
+        if (enemy.hp == 0) {
+            nrEnemiesKilled++;
+            // double hp and mana
+            character.regenHp(character.hp);
+            character.regenMana(character.mana);
+            expGained = 5 + rng.nextInt(11);
+            leveledUp = character.gainExp(expGained);
+            enemies.release(enemy);
+            enemy = null;
+            return TurnResult.ENEMY_KILLED;
+        }
+        takeEnemyTurn();
+        if (character.hp == 0) {
+            over = true;
+            // regen hp and mana for a possible replay
+            character.regenMana(character.maxMana);
+            character.regenHp(character.maxHp);
+            map = null;
+            enemies.release(enemy);
+            enemy = null;
+            return TurnResult.PLAYER_DIED;
+        }
+        return TurnResult.ENEMY_TURN;
+    }
+    private void takeEnemyTurn() {
+        CombatTurnEvent event = new CombatTurnEvent();
+        event.begin();
+        int hp = character.hp, enemyMana = enemy.mana, retries = 0;
+        Spell used = null;
+        boolean hasUsed;
+        do {
+            hasUsed = true;
+            // each ability has index from "0" to "size() - 1" and index "size()" is basic attack
+            int choice = rng.nextInt(enemy.getNrAbilities() + 1);
+            if (choice != enemy.getNrAbilities()) {
+                Spell ability = enemy.getAbility(choice);
+                // if it returns false, it did not have enough mana to use it so retry
+                if (!enemy.useAbility(ability, character, enemy.getDamage())) {
+                    hasUsed = false;
+                    retries++;
+                } else {
+                    used = ability;
+                }
+                // remove ability if used; if not used remove it anyway since ENEMY CANNOT REGEN MANA!!!!
+                enemy.removeAbility(choice);
+            } else {
+                enemy.events.publish(CombatEventType.BASIC_ATTACK, enemy, 0);
+                int damage = enemy.getDamage();
+                enemy.reportCrit(damage);
+                character.receiveDamage(damage);
+            }
+        } while (!hasUsed);
+        event.end();
+        if (event.shouldCommit())
+            commitTurn(event, enemy, used, hp - character.hp, enemyMana - enemy.mana, retries);
+    }
+    private static void commitTurn(CombatTurnEvent event, Entity attacker, Spell ability, int damage,
+                                   int manaSpent, int retries) {
+        event.attacker = attacker instanceof Enemy ? "Enemy" : attacker.getClass().getSimpleName();
+        event.ability = ability == null ? "Basic attack" : ability.getClass().getSimpleName();
+        event.damage = damage;
+        event.manaSpent = manaSpent;
+        event.retries = retries;
+        event.commit();
+    }
+    SessionCheckpoint checkpoint() {
+        return new SessionCheckpoint(this);
+    }
+    // only meant for sessions owned by a replay, the character is replaced by a copy
+    void restore(SessionCheckpoint checkpoint) {
+        rng.setState(checkpoint.rngState);
+        Character restored = CharacterFactory.create(character.getClass().getSimpleName(), character.name,
+                                                     checkpoint.exp, checkpoint.level);
+        restored.hp = checkpoint.hp;
+        restored.mana = checkpoint.mana;
+        restored.random = rng;
+        restored.events = character.events;
+        character = restored;
+        map = checkpoint.map == null ? null : checkpoint.map.copy();
+        if (map != null)
+            map.character = character;
+        if (enemy != null)
+            enemies.release(enemy);
+        enemy = checkpoint.enemy == null ? null : enemies.obtainCopy(checkpoint.enemy);
+        nrLevelsCompleted = checkpoint.nrLevelsCompleted;
+        nrEnemiesKilled = checkpoint.nrEnemiesKilled;
+        baseDamage = checkpoint.baseDamage;
+        turns = checkpoint.turns;
+        over = checkpoint.over;
+    }
+}
+
+// full state of a session after some number of inputs
+class SessionCheckpoint {
+    final int turns;
+    final long rngState;
+    final int level, exp, hp, mana;
+    final Grid map;
+    final Enemy enemy;
+    final int nrLevelsCompleted, nrEnemiesKilled, baseDamage;
+    final boolean over;
+    SessionCheckpoint(GameSession session) {
+        turns = session.getTurns();
+        rngState = session.getRandom().getState();
+        level = session.character.level;
+        exp = session.character.exp;
+        hp = session.character.hp;
+        mana = session.character.mana;
+        map = session.map == null ? null : session.map.copy();
+        enemy = session.enemy == null ? null : session.enemy.copy();
+        nrLevelsCompleted = session.nrLevelsCompleted;
+        nrEnemiesKilled = session.nrEnemiesKilled;
+        baseDamage = session.getBaseDamageIfRolled();
+        over = session.isOver();
+    }
+}
+
+/*
+ * Seed, starting character and inputs of a session. Inputs take 4 bits each, so even a
+ * 10000 turn session is about 5 KB and every session can be kept.
+ */
+class SessionRecording {
+    private static final int MAGIC = 0x4c6f5752;
+    // version 2 added the world size
+    private static final int VERSION = 2;
+    final long seed;
+    final boolean testMap;
+    final int worldSize;
+    final String profession, name;
+    final int level, exp;
+    private byte[] inputs = new byte[64];
+    private int size;
+    SessionRecording(long seed, boolean testMap, int worldSize, Character character) {
+        this(seed, testMap, worldSize, character.getClass().getSimpleName(), character.name, character.level,
+             character.exp);
+    }
+    private SessionRecording(long seed, boolean testMap, int worldSize, String profession, String name, int level,
+                             int exp) {
+        this.seed = seed;
+        this.testMap = testMap;
+        this.worldSize = worldSize;
+        this.profession = profession;
+        this.name = name;
+        this.level = level;
+        this.exp = exp;
+    }
+    void add(byte input) {
+        if ((size >> 1) == inputs.length)
+            inputs = Arrays.copyOf(inputs, inputs.length * 2);
+        if ((size & 1) == 0)
+            inputs[size >> 1] = input;
+        else
+            inputs[size >> 1] |= (byte) (input << 4);
+        size++;
+    }
+    byte get(int i) {
+        return (byte) ((inputs[i >> 1] >>> ((i & 1) << 2)) & 0xf);
+    }
+    public int size() {
+        return size;
+    }
+    // the character as it was when the session started, with full hp and mana
+    Character createCharacter() {
+        Character character = CharacterFactory.create(profession, name, exp, level);
+        if (character == null)
+            throw new IllegalStateException("Unknown profession " + profession);
+        return character;
+    }
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(seed);
+            out.writeBoolean(testMap);
+            out.writeInt(worldSize);
+            out.writeUTF(profession);
+            out.writeUTF(name);
+            out.writeInt(level);
+            out.writeInt(exp);
+            out.writeInt(size);
+            out.write(inputs, 0, (size + 1) >> 1);
+        }
+    }
+    public static SessionRecording read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic != MAGIC || version < 1 || version > VERSION)
+                throw new IOException(path + " is not a session recording");
+            long seed = in.readLong();
+            boolean testMap = in.readBoolean();
+            int worldSize = version >= 2 ? in.readInt() : 0;
+            SessionRecording recording = new SessionRecording(seed, testMap, worldSize, in.readUTF(), in.readUTF(),
+                                                              in.readInt(), in.readInt());
+            int size = in.readInt();
+            if (size < 0)
+                throw new IOException("Corrupt session recording " + path);
+            recording.inputs = new byte[Math.max(64, (size + 1) >> 1)];
+            in.readFully(recording.inputs, 0, (size + 1) >> 1);
+            recording.size = size;
+            return recording;
+        }
+    }
+}
+
+/*
+ * Replays a recording headlessly, as fast as the rules run. A checkpoint is taken every
+ * CHECKPOINT_INTERVAL inputs on the way, so seeking to any turn restores the closest earlier
+ * checkpoint and replays at most that many inputs.
+ */
+class SessionReplay {
+    static final int CHECKPOINT_INTERVAL = 256;
+    private final SessionRecording recording;
+    private final GameSession session;
+    private final ArrayList<SessionCheckpoint> checkpoints = new ArrayList<>();
+    // replays report to their own bus, never to the log of a running game
+    final CombatEventBus events = new CombatEventBus(CombatEventBus.DEFAULT_CAPACITY);
+    public SessionReplay(SessionRecording recording) {
+        this.recording = recording;
+        Character character = recording.createCharacter();
+        character.events = events;
+        session = new GameSession(character, recording.seed, recording.testMap, false, recording.worldSize);
+        checkpoints.add(session.checkpoint());
+    }
+    public GameSession getSession() {
+        return session;
+    }
+    public int getTurn() {
+        return session.getTurns();
+    }
+    public int length() {
+        return recording.size();
+    }
+    // applies the next input, returns null at the end of the recording
+    public TurnResult step() {
+        int turn = session.getTurns();
+        if (turn >= recording.size() || session.isOver())
+            return null;
+        TurnResult result = session.apply(recording.get(turn));
+        turn++;
+        if (turn % CHECKPOINT_INTERVAL == 0 && turn / CHECKPOINT_INTERVAL == checkpoints.size())
+            checkpoints.add(session.checkpoint());
+        return result;
+    }
+    public void runToEnd() {
+        while (step() != null)
+            ;
+    }
+    public void seek(int turn) {
+        turn = Math.max(0, Math.min(turn, recording.size()));
+        int nearest = Math.min(turn / CHECKPOINT_INTERVAL, checkpoints.size() - 1);
+        // going forward from the current position is cheaper than restoring when it is past the checkpoint
+        if (turn < session.getTurns() || session.getTurns() < nearest * CHECKPOINT_INTERVAL)
+            session.restore(checkpoints.get(nearest));
+        while (session.getTurns() < turn && step() != null)
+            ;
+    }
+    // replays a recording file and prints where the session ended
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: SessionReplay <recording> [turn]");
+            return;
+        }
+        SessionRecording recording = SessionRecording.read(Paths.get(args[0]));
+        long start = System.nanoTime();
+        SessionReplay replay = new SessionReplay(recording);
+        if (args.length > 1)
+            replay.seek(Integer.parseInt(args[1]));
+        else
+            replay.runToEnd();
+        long elapsed = System.nanoTime() - start;
+        GameSession session = replay.getSession();
+        System.out.printf("%s %s at turn %d of %d: level %d, %d exp, %d hp, %d mana, %d maps, %d kills%s (%.2f ms)%n",
+                recording.profession, recording.name, replay.getTurn(), replay.length(), session.character.level,
+                session.character.exp, session.character.hp, session.character.mana, session.nrLevelsCompleted,
+                session.nrEnemiesKilled, session.isOver() ? ", died" : "", elapsed / 1e6);
+    }
+}
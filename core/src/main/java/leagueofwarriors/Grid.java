@@ -0,0 +1,445 @@
+package leagueofwarriors;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+enum CellEntityType {
+    PLAYER, VOID, ENEMY, SANCTUARY, PORTAL
+}
+
+class ImpossibleMoveException extends Exception {
+    public ImpossibleMoveException(String message) {
+        super(message);
+    }
+}
+
+// read-only view of a single cell, the grid itself only stores a byte per cell and a visited bit
+class Cell {
+    final int x, y;
+    final CellEntityType type;
+    final boolean visited;
+    public Cell(int x, int y, CellEntityType type, boolean isVisited) {
+        this.x = x;
+        this.y = y;
+        this.type = type;
+        this.visited = isVisited;
+    }
+    public static String symbol(CellEntityType type) {
+        switch (type) {
+            case PLAYER:
+                return "\uD83D\uDE0E";
+            case VOID:
+                return "";
+            case ENEMY:
+                return "E";
+            case SANCTUARY:
+                return "S";
+            case PORTAL:
+                return "[]";
+        }
+        return "";
+    }
+    public String toString() {
+        return symbol(type);
+    }
+}
+
+class Grid {
+    private static final CellEntityType[] TYPES = CellEntityType.values();
+    // only maps at least this large are filled on several threads
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+    static final String NOT_SEARCHABLE = "Cannot travel in world mode, the map is too large to search";
+    int length, width;
+    Character character = null;
+    // position of the player, x is the column (up to length) and y the row (up to width)
+    int playerX, playerY;
+    // cell types as ordinals of CellEntityType, stored row by row
+    private final byte[] cells;
+    // one bit per cell, same indexing as cells: the cells explored, which have been in sight at some point
+    private final long[] visited;
+    // one bit per cell, the cells in sight right now
+    private final long[] visible;
+    // decides which cells are in sight as the player moves
+    final Visibility visibility = new Visibility(this);
+    // distance fields of the map, created on first use and then told about every cell changed
+    private Pathfinder paths;
+    private Grid(int length, int width) {
+        this(length, width, new byte[checkedSize(length, width)], new long[(checkedSize(length, width) + 63) >>> 6],
+             new long[(checkedSize(length, width) + 63) >>> 6]);
+    }
+    // subclasses that keep the cells somewhere else pass null storage and override the cell accessors
+    Grid(int length, int width, byte[] cells, long[] visited, long[] visible) {
+        this.length = length;
+        this.width = width;
+        this.cells = cells;
+        this.visited = visited;
+        this.visible = visible;
+    }
+    private static int checkedSize(int length, int width) {
+        if ((long) length * width > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Map of " + length + "x" + width + " cells is too large");
+        return length * width;
+    }
+    private int index(int x, int y) {
+        return y * length + x;
+    }
+    public CellEntityType getType(int x, int y) {
+        return TYPES[cells[index(x, y)]];
+    }
+    void setType(int x, int y, CellEntityType type) {
+        cells[index(x, y)] = (byte) type.ordinal();
+        if (paths != null)
+            paths.cellChanged(x, y);
+    }
+    public boolean isVisited(int x, int y) {
+        int i = index(x, y);
+        return (visited[i >>> 6] & (1L << i)) != 0;
+    }
+    void setVisited(int x, int y) {
+        int i = index(x, y);
+        visited[i >>> 6] |= 1L << i;
+        if (paths != null)
+            paths.cellChanged(x, y);
+    }
+    public boolean isVisible(int x, int y) {
+        int i = index(x, y);
+        return (visible[i >>> 6] & (1L << i)) != 0;
+    }
+    void setVisible(int x, int y, boolean isVisible) {
+        int i = index(x, y);
+        if (isVisible)
+            visible[i >>> 6] |= 1L << i;
+        else
+            visible[i >>> 6] &= ~(1L << i);
+    }
+    // whether paths() can search the whole map, which a ChunkedGrid cannot
+    boolean isSearchable() {
+        return true;
+    }
+    Pathfinder paths() {
+        if (paths == null)
+            paths = new Pathfinder(this);
+        return paths;
+    }
+    // independent copy of the cells, visited and visible bits and player position
+    Grid copy() {
+        Grid copy = new Grid(length, width, cells.clone(), visited.clone(), visible.clone());
+        copy.visibility.copyFrom(visibility);
+        copy.character = character;
+        copy.playerX = playerX;
+        copy.playerY = playerY;
+        return copy;
+    }
+    public Cell getCell(int x, int y) {
+        return new Cell(x, y, getType(x, y), isVisited(x, y));
+    }
+    public Cell getCurrentCell() {
+        return getCell(playerX, playerY);
+    }
+    private void clearVisited() {
+        Arrays.fill(visited, 0);
+        Arrays.fill(visible, 0);
+        visibility.reset();
+    }
+    void placePlayer(int x, int y) {
+        playerX = x;
+        playerY = y;
+        setType(x, y, CellEntityType.PLAYER);
+        visibility.moveTo(x, y);
+    }
+    // minDistance is used to ensure that player and portal are never too close
+    public static Grid generateMap(int length, int width, int minDistance) {
+        return generateMap(length, width, minDistance, GameRandom.forThread().nextLong());
+    }
+    /*
+    The same seed always gives the same map, whatever the number of threads:
+     - the player is drawn among the cells that have at least one cell minDistance away, then the portal
+       among the cells at least minDistance away from the player (see placePlayerAndPortal)
+     - every row gets its own split of the seed, so rows can be filled in parallel
+     - if the 2 sanctuaries / 4 enemies quota is missed, only the missing cells are converted
+    */
+    public static Grid generateMap(int length, int width, int minDistance, long seed) {
+        if ((long) length * width < 8)
+            throw new IllegalArgumentException("Map of " + length + "x" + width +
+                                               " cells cannot fit 2 sanctuaries and 4 enemies");
+        MapGeneratedEvent event = new MapGeneratedEvent();
+        event.begin();
+        Grid map = new Grid(length, width);
+        SplittableRandom rng = new SplittableRandom(seed);
+        // a distance larger than the diagonal cannot be met and player and portal need different cells
+        int distance = Math.max(1, Math.min(minDistance, length - 1 + width - 1));
+        int[] placed = placePlayerAndPortal(length, width, distance, rng);
+        int xPlayer = placed[0], yPlayer = placed[1], xPortal = placed[2], yPortal = placed[3];
+        SplittableRandom[] rowRngs = new SplittableRandom[width];
+        for (int j = 0; j < width; j++)
+            rowRngs[j] = rng.split();
+        IntStream rows = IntStream.range(0, width);
+        if ((long) length * width >= PARALLEL_THRESHOLD)
+            rows = rows.parallel();
+        // sanctuaries in the high half, enemies in the low half
+        long counts = rows.mapToLong(j -> map.fillRow(j, rowRngs[j])).sum();
+        int nrSanct = (int) (counts >>> 32);
+        int nrEnemy = (int) counts;
+        // player and portal were filled like any other cell, so take them out of the counts
+        for (CellEntityType type : new CellEntityType[] {map.getType(xPlayer, yPlayer), map.getType(xPortal, yPortal)}) {
+            if (type == CellEntityType.SANCTUARY)
+                nrSanct--;
+            else if (type == CellEntityType.ENEMY)
+                nrEnemy--;
+        }
+        map.placePlayer(xPlayer, yPlayer);
+        map.setType(xPortal, yPortal, CellEntityType.PORTAL);
+        int quotaCells = 0;
+        if (nrSanct < 2 || nrEnemy < 4)
+            quotaCells = map.meetQuotas(rng, nrSanct, nrEnemy);
+        event.end();
+        if (event.shouldCommit()) {
+            event.length = length;
+            event.width = width;
+            event.minDistance = distance;
+            event.quotaCells = quotaCells;
+            event.commit();
+        }
+        return map;
+    }
+    /*
+    weight of each cell spawning is:
+     - void = 1
+     - sanctuary = 2
+     - enemy = 4
+    total weight is 7 so :
+     - 0 is void; 1,2 is sanctuary; 3,4,5,6 is enemy
+    */
+    private long fillRow(int j, SplittableRandom rng) {
+        int nrSanct = 0, nrEnemy = 0;
+        for (int i = 0, idx = index(0, j); i < length; i++, idx++) {
+            int choice = rng.nextInt(7);
+            if (choice == 0) {
+                cells[idx] = (byte) CellEntityType.VOID.ordinal();
+            } else if (choice <= 2) {
+                cells[idx] = (byte) CellEntityType.SANCTUARY.ordinal();
+                nrSanct++;
+            } else {
+                cells[idx] = (byte) CellEntityType.ENEMY.ordinal();
+                nrEnemy++;
+            }
+        }
+        return ((long) nrSanct << 32) | nrEnemy;
+    }
+    /*
+    Goes once over the cells in random order (lazy Fisher-Yates), turning void cells and cells of a type
+    above its quota into the missing type, enemies first. With at least 6 free cells one pass is enough.
+    Returns the number of cells converted.
+    */
+    private int meetQuotas(SplittableRandom rng, int nrSanct, int nrEnemy) {
+        int converted = 0;
+        int[] order = new int[cells.length];
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+        for (int n = 0; n < order.length && (nrSanct < 2 || nrEnemy < 4); n++) {
+            int pick = n + rng.nextInt(order.length - n);
+            int idx = order[pick];
+            order[pick] = order[n];
+            order[n] = idx;
+            CellEntityType type = TYPES[cells[idx]];
+            if (nrEnemy < 4 && (type == CellEntityType.VOID || (type == CellEntityType.SANCTUARY && nrSanct > 2))) {
+                if (type == CellEntityType.SANCTUARY)
+                    nrSanct--;
+                cells[idx] = (byte) CellEntityType.ENEMY.ordinal();
+                nrEnemy++;
+                converted++;
+            } else if (nrSanct < 2 && (type == CellEntityType.VOID || (type == CellEntityType.ENEMY && nrEnemy > 4))) {
+                if (type == CellEntityType.ENEMY)
+                    nrEnemy--;
+                cells[idx] = (byte) CellEntityType.SANCTUARY.ordinal();
+                nrSanct++;
+                converted++;
+            }
+        }
+        return converted;
+    }
+    /*
+    Player and portal cells at least distance apart, each drawn among its valid cells by counting them row by row.
+    Only the rows less than distance away from both the top and the bottom can have player cells missing, and only
+    the rows less than distance away from the player portal cells, so every other row is counted whole; on a huge
+    map that is a few rows to go through. Returns {xPlayer, yPlayer, xPortal, yPortal}.
+    */
+    static int[] placePlayerAndPortal(int length, int width, int distance, SplittableRandom rng) {
+        IntUnaryOperator playerCells = y -> playerCellsInRow(length, width, distance, y);
+        int lo = Math.max(0, width - distance), hi = Math.max(lo, Math.min(width, distance));
+        long k = nthCell(rng.nextLong(countCells(length, width, lo, hi, playerCells)), length, lo, hi, playerCells);
+        int yPlayer = (int) (k >>> 32);
+        int xPlayer = nthPlayerCellInRow(length, width, distance, yPlayer, (int) k);
+        IntUnaryOperator portalCells = y -> portalCellsInRow(length, distance, xPlayer, Math.abs(y - yPlayer));
+        lo = Math.max(0, yPlayer - distance + 1);
+        hi = (int) Math.min(width, (long) yPlayer + distance);
+        k = nthCell(rng.nextLong(countCells(length, width, lo, hi, portalCells)), length, lo, hi, portalCells);
+        int yPortal = (int) (k >>> 32);
+        int xPortal = nthPortalCellInRow(distance, xPlayer, Math.abs(yPortal - yPlayer), (int) k);
+        return new int[] {xPlayer, yPlayer, xPortal, yPortal};
+    }
+    // valid cells of the map, when the rows outside lo..hi - 1 are all valid
+    private static long countCells(int length, int width, int lo, int hi, IntUnaryOperator cellsInRow) {
+        long count = (long) (width - (hi - lo)) * length;
+        for (int y = lo; y < hi; y++)
+            count += cellsInRow.applyAsInt(y);
+        return count;
+    }
+    // row of the k-th valid cell (from 0, row by row) in the high half, and its place among those of the row
+    private static long nthCell(long k, int length, int lo, int hi, IntUnaryOperator cellsInRow) {
+        if (k < (long) lo * length)
+            return k / length << 32 | k % length;
+        k -= (long) lo * length;
+        for (int y = lo; y < hi; y++) {
+            int n = cellsInRow.applyAsInt(y);
+            if (k < n)
+                return (long) y << 32 | k;
+            k -= n;
+        }
+        return hi + k / length << 32 | k % length;
+    }
+    // cells of row y from which the farthest corner is at least distance away
+    private static int playerCellsInRow(int length, int width, int distance, int y) {
+        int r = distance - Math.max(y, width - 1 - y);
+        // columns x with max(x, length - 1 - x) >= r: the whole row, or [0, length - 1 - r] and [r, length - 1]
+        if (2L * r <= length)
+            return length;
+        return 2 * Math.max(0, length - r);
+    }
+    private static int nthPlayerCellInRow(int length, int width, int distance, int y, int n) {
+        int r = distance - Math.max(y, width - 1 - y);
+        if (2L * r <= length || n < length - r)
+            return n;
+        return r + n - (length - r);
+    }
+    // cells of a row dy rows away from the player that are at least distance away from it
+    private static int portalCellsInRow(int length, int distance, int xPlayer, int dy) {
+        int r = distance - dy;
+        if (r <= 0)
+            return length;
+        // columns [0, xPlayer - r] and [xPlayer + r, length - 1]
+        return Math.max(0, xPlayer - r + 1) + Math.max(0, length - xPlayer - r);
+    }
+    private static int nthPortalCellInRow(int distance, int xPlayer, int dy, int n) {
+        int r = distance - dy;
+        if (r <= 0)
+            return n;
+        int left = Math.max(0, xPlayer - r + 1);
+        if (n < left)
+            return n;
+        return xPlayer + r + n - left;
+    }
+    public static Grid generateMap(int length, int width) {
+        // if not specified, the minDistance is half of longest distance
+        return generateMap(length, width, 3 * (length + width - 1) / 5);
+    }
+    public static Grid generateMap(int length, int width, GameRandom rng) {
+        return generateMap(length, width, 3 * (length + width - 1) / 5, rng.nextLong());
+    }
+    public static Grid generateTestMap() {
+        return generateTestMap(GameRandom.forThread());
+    }
+    public static Grid generateTestMap(GameRandom rng) {
+        MapGeneratedEvent event = new MapGeneratedEvent();
+        event.begin();
+        Grid map = new Grid(5, 5);
+        int choice, nrEnemy, retries = -1;
+        do {
+            retries++;
+            nrEnemy = 0;
+            map.clearVisited();
+            for (int j = 0; j < 5; j++) {
+                for (int i = 0; i < 5; i++) {
+                    // hardcode player
+                    if (i == 0 && j == 0) {
+                        map.placePlayer(i, j);
+                        continue;
+                    }
+                    // hardcode portal
+                    if (i == 4 && j == 4) {
+                        map.setType(i, j, CellEntityType.PORTAL);
+                        map.setVisited(i, j);
+                        continue;
+                    }
+                    if ((i == 3 && j == 0) || (i == 3 && j == 1) || (i == 0 && j == 2) || (i == 3 && j == 4)) {
+                        map.setType(i, j, CellEntityType.SANCTUARY);
+                        map.setVisited(i, j);
+                        continue;
+                    }
+                    if (i == 4 && j == 3) {
+                        map.setType(i, j, CellEntityType.ENEMY);
+                        map.setVisited(i, j);
+                        continue;
+                    }
+                    choice = rng.nextInt(7);
+                    if (choice == 0) {
+                        map.setType(i, j, CellEntityType.VOID);
+                    } else if (choice <= 2) {
+                        map.setType(i, j, CellEntityType.SANCTUARY);
+                    } else {
+                        map.setType(i, j, CellEntityType.ENEMY);
+                        nrEnemy++;
+                    }
+                }
+            }
+        } while (nrEnemy < 4);
+        event.end();
+        if (event.shouldCommit()) {
+            event.length = 5;
+            event.width = 5;
+            event.retries = retries;
+            event.commit();
+        }
+        return map;
+    }
+    // leaves the current cell empty, moves the player and returns what was in the new cell
+    private CellEntityType moveTo(int x, int y) {
+        setType(playerX, playerY, CellEntityType.VOID);
+        CellEntityType oldType = getType(x, y);
+        placePlayer(x, y);
+        return oldType;
+    }
+    public CellEntityType goNorth() throws ImpossibleMoveException {
+        if (playerY == 0)
+            throw new ImpossibleMoveException("Player cannot move North");
+        return moveTo(playerX, playerY - 1);
+    }
+    public CellEntityType goSouth() throws ImpossibleMoveException {
+        if (playerY == width - 1)
+            throw new ImpossibleMoveException("Player cannot move South");
+        return moveTo(playerX, playerY + 1);
+    }
+    public CellEntityType goEast() throws ImpossibleMoveException {
+        if (playerX == length - 1)
+            throw new ImpossibleMoveException("Player cannot move East");
+        return moveTo(playerX + 1, playerY);
+    }
+    public CellEntityType goWest() throws ImpossibleMoveException {
+        if (playerX == 0)
+            throw new ImpossibleMoveException("Player cannot move West");
+        return moveTo(playerX - 1, playerY);
+    }
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\n\n");
+        for (int j = 0; j < width; j++) {
+            sb.append("\t\t");
+            for (int i = 0; i < length; i++) {
+                boolean isVisited = isVisited(i, j);
+                CellEntityType type = getType(i, j);
+                if (!isVisited)
+                    sb.append("N");
+                else
+                    sb.append(Cell.symbol(type));
+                if (type == CellEntityType.PORTAL && isVisited)
+                    sb.append("   ");
+                else
+                    sb.append("    ");
+            }
+            sb.append("\n\n");
+        }
+        return sb.toString();
+    }
+}
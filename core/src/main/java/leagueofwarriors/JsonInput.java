@@ -0,0 +1,60 @@
+package leagueofwarriors;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+class JsonInput {
+    private static final String accountPath = "./accounts.json";
+    private static final String storePath = "./accounts.store";
+    private static final String progressLogPath = "./progress.log";
+    /*
+    The binary store is used at runtime, accounts.json is only imported when it is newer than the store.
+    The progress log is replayed into the current store before that, and the import keeps every account
+    the store already has as it is, so pulling a new accounts.json never loses progress.
+    */
+    public static AccountStore openAccountStore() {
+        Path json = Paths.get(accountPath);
+        Path store = Paths.get(storePath);
+        try {
+            AccountsLoadedEvent event = new AccountsLoadedEvent();
+            event.begin();
+            String source = "accounts.store";
+            if (Files.exists(json) && (!Files.exists(store) ||
+                Files.getLastModifiedTime(json).compareTo(Files.getLastModifiedTime(store)) > 0)) {
+                AccountStore previous = null;
+                if (Files.exists(store)) {
+                    previous = AccountStore.open(store);
+                    ProgressLog.replay(Paths.get(progressLogPath), previous);
+                }
+                AccountStore.importJson(json, store, System.out::println, previous);
+                source = previous == null ? "accounts.json import" : "accounts.json merge";
+            }
+            AccountStore accounts = AccountStore.open(store);
+            event.end();
+            if (event.shouldCommit())
+                commitLoaded(event, source, store, accounts.size());
+            return accounts;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+    private static void commitLoaded(AccountsLoadedEvent event, String source, Path path, int count)
+            throws IOException {
+        event.source = source;
+        event.bytes = Files.size(path);
+        event.accounts = count;
+        event.commit();
+    }
+    // replays progress logged by the last run into the store
+    public static ProgressLog openProgressLog(AccountStore store) {
+        try {
+            return ProgressLog.open(Paths.get(progressLogPath), store);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,489 @@
+package leagueofwarriors;
+
+import java.util.Arrays;
+
+// what a distance field leads to
+enum PathTarget {
+    PORTAL, SANCTUARY, UNEXPLORED
+}
+
+// how routes weigh enemy cells: AVOID makes an enemy cost a detour of 7 cells, PREFER any other cell 2 enemies
+enum EnemyPolicy {
+    IGNORE(1), AVOID(8), PREFER(2);
+    // cost of walking into an expensive cell, the others cost 1
+    final int highCost;
+    EnemyPolicy(int highCost) {
+        this.highCost = highCost;
+    }
+}
+
+/*
+ * Distances of a Grid to the cells of a PathTarget, from the Pathfinder of the grid.
+ * The distance of a cell is the cost of walking from it to the nearest target, each cell walked into
+ * costing 1 or the highCost of the policy, so following the neighbour with the smallest cost + distance
+ * always leads to a target. Cells changed since the field was last used are only recorded; the next use
+ * repairs the distances around them (with a small Dijkstra over the cells whose route went through them)
+ * instead of searching the whole map again.
+ */
+class DistanceField {
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+    // past this many changed cells, or invalidated cells per map cell, searching again is cheaper
+    private static final int MAX_CHANGES = 64, MAX_INVALID_SHIFT = 3;
+    final PathTarget target;
+    final EnemyPolicy policy;
+    private final Pathfinder paths;
+    private final int length, width;
+    // by cell number of the Pathfinder, so the cells of a tile are next to each other
+    private final int[] dist;
+    // cell number and flags before the change, for every change not repaired yet
+    private int[] changes = new int[16];
+    private int nrChanges;
+    DistanceField(Pathfinder paths, PathTarget target, EnemyPolicy policy) {
+        this.paths = paths;
+        this.target = target;
+        this.policy = policy;
+        length = paths.length;
+        width = paths.width;
+        dist = new int[paths.inside.length << 6];
+        compute();
+    }
+    private boolean isTarget(int flags) {
+        switch (target) {
+            case PORTAL:
+                return (flags & Pathfinder.PORTAL) != 0;
+            case SANCTUARY:
+                return (flags & Pathfinder.SANCTUARY) != 0;
+            default:
+                return (flags & Pathfinder.UNVISITED) != 0;
+        }
+    }
+    private int cost(int flags) {
+        switch (policy) {
+            case AVOID:
+                return (flags & Pathfinder.ENEMY) != 0 ? policy.highCost : 1;
+            case PREFER:
+                return (flags & Pathfinder.ENEMY) == 0 ? policy.highCost : 1;
+            default:
+                return 1;
+        }
+    }
+    private long targetTile(int i) {
+        switch (target) {
+            case PORTAL:
+                return paths.portals[i];
+            case SANCTUARY:
+                return paths.sanctuaries[i];
+            default:
+                return paths.unvisited[i];
+        }
+    }
+    public int distance(int x, int y) {
+        if (nrChanges > 0)
+            repair();
+        return dist[paths.cell(x, y)];
+    }
+    // direction (as GameSession input) of the first step towards the nearest target, -1 on a target or without route
+    public byte nextStep(int x, int y) {
+        int d = distance(x, y);
+        if (d == 0 || d == UNREACHABLE)
+            return -1;
+        byte best = -1;
+        long bestCost = Long.MAX_VALUE;
+        for (byte direction = GameSession.NORTH; direction <= GameSession.WEST; direction++) {
+            int nx = x + Pathfinder.DX[direction], ny = y + Pathfinder.DY[direction];
+            if (nx < 0 || ny < 0 || nx >= length || ny >= width)
+                continue;
+            int cell = paths.cell(nx, ny);
+            if (dist[cell] == UNREACHABLE)
+                continue;
+            long cost = (long) cost(paths.flags(cell)) + dist[cell];
+            if (cost < bestCost) {
+                bestCost = cost;
+                best = direction;
+            }
+        }
+        return best;
+    }
+    void cellChanged(int cell, int before, int after) {
+        // past MAX_CHANGES the next use searches again anyway, so there is no need to remember more
+        if (nrChanges == MAX_CHANGES || (isTarget(before) == isTarget(after) && cost(before) == cost(after)))
+            return;
+        if (2 * nrChanges == changes.length)
+            changes = Arrays.copyOf(changes, changes.length * 2);
+        changes[2 * nrChanges] = cell;
+        changes[2 * nrChanges + 1] = before;
+        nrChanges++;
+    }
+    /*
+    Bucketed breadth-first search from all the targets at once, on the tiles of the Pathfinder.
+    Bucket d % (highCost + 1) holds the cells reached at distance d and the list of its tiles that are not
+    empty; the cells of a tile settled at distance d move to their neighbours in bucket d + 1, or d + highCost
+    for the expensive ones, and a cell is only settled from the first bucket that reaches it.
+    */
+    void compute() {
+        Pathfinder p = paths;
+        nrChanges = 0;
+        Arrays.fill(dist, UNREACHABLE);
+        int ring = policy.highCost + 1;
+        long[] settled = p.startSearch(ring);
+        long[][] buckets = p.buckets;
+        int[][] lists = p.lists;
+        int[] sizes = p.sizes;
+        for (int i = 0; i < settled.length; i++)
+            p.add(0, i, targetTile(i) & ~settled[i]);
+        // the expensive cells are the enemies, or everything but the enemies
+        long[] enemies = policy == EnemyPolicy.IGNORE ? null : p.enemies;
+        long flip = policy == EnemyPolicy.PREFER ? -1L : 0;
+        for (int d = 0, b = 0; p.pending > 0; d++, b = b + 1 == ring ? 0 : b + 1) {
+            long[] bucket = buckets[b];
+            int[] list = lists[b];
+            int n = sizes[b];
+            int next = b + 1 == ring ? 0 : b + 1, later = (b + policy.highCost) % ring;
+            // spreading only ever goes to other buckets, so the list stays as it is while it is read
+            sizes[b] = 0;
+            p.pending -= n;
+            for (int k = 0; k < n; k++) {
+                int i = list[k];
+                long bits = bucket[i] & ~settled[i];
+                bucket[i] = 0;
+                if (bits == 0)
+                    continue;
+                settled[i] |= bits;
+                record(i, bits, d);
+                long high = enemies == null ? 0 : bits & (enemies[i] ^ flip);
+                if (high != bits)
+                    p.spread(bits & ~high, i, next);
+                if (high != 0)
+                    p.spread(high, i, later);
+            }
+        }
+    }
+    private void record(int i, long bits, int d) {
+        int base = i << 6;
+        while (bits != 0) {
+            dist[base | Long.numberOfTrailingZeros(bits)] = d;
+            bits &= bits - 1;
+        }
+    }
+    /*
+    Only the distances of cells whose route may have gone through a changed cell can grow: those are
+    invalidated, following every neighbour whose distance was exactly the cost through an invalidated
+    (or changed) cell, measured with the cost from before the change. The invalidated cells then start
+    again from their valid neighbours and the new targets, and a Dijkstra spreads from there, which also
+    carries the distances that shrank.
+    */
+    private void repair() {
+        Pathfinder p = paths;
+        int n = nrChanges;
+        if (n == MAX_CHANGES) {
+            compute();
+            return;
+        }
+        nrChanges = 0;
+        long[] invalid = p.invalid(), changed = p.changed;
+        int[] stack = p.stack;
+        int[] invalidCells = p.invalidCells;
+        int nrInvalid = 0, top = 0, maxInvalid = Math.max(64, (length * width) >>> MAX_INVALID_SHIFT);
+        for (int k = 0; k < n; k++)
+            set(changed, changes[2 * k]);
+        for (int k = 0; k < n; k++) {
+            int cell = changes[2 * k], before = changes[2 * k + 1], after = p.flags(cell);
+            boolean lost = isTarget(before) && !isTarget(after);
+            if (lost && !get(invalid, cell)) {
+                set(invalid, cell);
+                invalidCells[nrInvalid++] = cell;
+            }
+            // cells that became targets or cheaper only make distances shrink, the Dijkstra takes care of those
+            if (lost || cost(after) > cost(before))
+                stack[top++] = cell;
+        }
+        while (top > 0) {
+            int u = stack[--top];
+            if (dist[u] == UNREACHABLE)
+                continue;
+            int through = dist[u] + costBefore(u, n);
+            for (int direction = 0; direction < 4; direction++) {
+                int v = p.neighbour(u, direction);
+                if (v < 0 || dist[v] != through || get(invalid, v))
+                    continue;
+                if (nrInvalid == maxInvalid) {
+                    // most of the map depends on the changes, so search the whole map again
+                    for (int k = 0; k < nrInvalid; k++)
+                        clear(invalid, invalidCells[k]);
+                    for (int k = 0; k < n; k++)
+                        clear(changed, changes[2 * k]);
+                    compute();
+                    return;
+                }
+                set(invalid, v);
+                invalidCells[nrInvalid++] = v;
+                if (top == stack.length)
+                    p.stack = stack = Arrays.copyOf(stack, stack.length * 2);
+                stack[top++] = v;
+            }
+        }
+        for (int k = 0; k < nrInvalid; k++)
+            dist[invalidCells[k]] = UNREACHABLE;
+        LongHeap heap = p.heap;
+        for (int k = 0; k < nrInvalid; k++) {
+            int u = invalidCells[k];
+            int best = UNREACHABLE;
+            if (isTarget(p.flags(u))) {
+                best = 0;
+            } else {
+                for (int direction = 0; direction < 4; direction++) {
+                    int v = p.neighbour(u, direction);
+                    if (v >= 0 && !get(invalid, v) && dist[v] != UNREACHABLE)
+                        best = Math.min(best, dist[v] + cost(p.flags(v)));
+                }
+            }
+            if (best != UNREACHABLE) {
+                dist[u] = best;
+                heap.push(best, u);
+            }
+        }
+        for (int k = 0; k < nrInvalid; k++)
+            clear(invalid, invalidCells[k]);
+        for (int k = 0; k < n; k++)
+            clear(changed, changes[2 * k]);
+        // changed cells that stayed valid may have become targets or cheaper to walk through
+        for (int k = 0; k < n; k++) {
+            int cell = changes[2 * k];
+            if (isTarget(p.flags(cell)))
+                dist[cell] = 0;
+            if (dist[cell] != UNREACHABLE)
+                heap.push(dist[cell], cell);
+        }
+        while (!heap.isEmpty()) {
+            long top64 = heap.pop();
+            int d = (int) (top64 >>> 32), u = (int) top64;
+            if (d != dist[u])
+                continue;
+            int through = d + cost(p.flags(u));
+            for (int direction = 0; direction < 4; direction++) {
+                int v = p.neighbour(u, direction);
+                if (v >= 0 && through < dist[v]) {
+                    dist[v] = through;
+                    heap.push(through, v);
+                }
+            }
+        }
+    }
+    // cost of walking into cell u before the n changes being repaired, which is what the distances were built with
+    private int costBefore(int u, int n) {
+        if (get(paths.changed, u)) {
+            for (int k = 0; k < n; k++)
+                if (changes[2 * k] == u)
+                    return cost(changes[2 * k + 1]);
+        }
+        return cost(paths.flags(u));
+    }
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+    private static void clear(long[] bits, int i) {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+}
+
+/*
+ * What the distance fields of a Grid need to know about its cells, as bitsets of 8x8 tiles: one long per
+ * tile, bit (y % 8) * 8 + x % 8, tiles row by row with the rows padded to a power of 2 tiles.
+ * Moving a whole tile one cell in every direction takes a few shifts of the tile and of its 4 neighbours,
+ * so a search goes through 64 cells per operation, and only through the tiles of its frontier.
+ * Created by the grid on first use, which then reports every cell it changes; fields are cached per
+ * target and policy and kept up to date from those reports.
+ */
+class Pathfinder {
+    static final int ENEMY = 1, SANCTUARY = 2, PORTAL = 4, UNVISITED = 8;
+    // offsets of the GameSession directions
+    static final int[] DX = {0, 0, 1, -1}, DY = {-1, 1, 0, 0};
+    private static final long COLUMN_0 = 0x0101010101010101L, COLUMN_7 = COLUMN_0 << 7;
+    private static final PathTarget[] TARGETS = PathTarget.values();
+    private static final EnemyPolicy[] POLICIES = EnemyPolicy.values();
+    final Grid map;
+    final int length, width;
+    final int tileShift, tilesX, tilesY;
+    final long[] inside, enemies, sanctuaries, portals, unvisited;
+    private final DistanceField[] fields = new DistanceField[TARGETS.length * POLICIES.length];
+    // scratch of the searches and repairs, shared by the fields since a map is only used by one thread
+    private long[] settled, invalid;
+    long[] changed;
+    long[][] buckets = new long[0][];
+    int[][] lists = new int[0][];
+    int[] sizes = new int[0];
+    int pending;
+    int[] stack = new int[128], invalidCells;
+    final LongHeap heap = new LongHeap();
+    Pathfinder(Grid map) {
+        this.map = map;
+        length = map.length;
+        width = map.width;
+        tileShift = 32 - Integer.numberOfLeadingZeros(Math.max(0, ((length + 7) >>> 3) - 1));
+        tilesX = 1 << tileShift;
+        tilesY = (width + 7) >>> 3;
+        int tiles = tilesY << tileShift;
+        inside = new long[tiles];
+        enemies = new long[tiles];
+        sanctuaries = new long[tiles];
+        portals = new long[tiles];
+        unvisited = new long[tiles];
+        for (int y = 0; y < width; y++) {
+            for (int x = 0; x < length; x++) {
+                int i = tile(x, y);
+                long bit = 1L << bit(x, y);
+                inside[i] |= bit;
+                update(i, bit, flags(map.getType(x, y), map.isVisited(x, y)));
+            }
+        }
+    }
+    int tile(int x, int y) {
+        return ((y >>> 3) << tileShift) | (x >>> 3);
+    }
+    static int bit(int x, int y) {
+        return ((y & 7) << 3) | (x & 7);
+    }
+    private static int flags(CellEntityType type, boolean visited) {
+        int flags = visited ? 0 : UNVISITED;
+        switch (type) {
+            case ENEMY:
+                return flags | ENEMY;
+            case SANCTUARY:
+                return flags | SANCTUARY;
+            case PORTAL:
+                return flags | PORTAL;
+            default:
+                return flags;
+        }
+    }
+    // cells are numbered tile by tile, 64 to a tile like the bits of the bitsets
+    int cell(int x, int y) {
+        return (tile(x, y) << 6) | bit(x, y);
+    }
+    // cell next to a cell in a direction, -1 past the edge
+    int neighbour(int cell, int direction) {
+        int tile = cell >>> 6;
+        int x = (((tile & (tilesX - 1)) << 3) | (cell & 7)) + DX[direction];
+        int y = (((tile >>> tileShift) << 3) | ((cell >>> 3) & 7)) + DY[direction];
+        return x < 0 || y < 0 || x >= length || y >= width ? -1 : cell(x, y);
+    }
+    int flags(int cell) {
+        int i = cell >>> 6;
+        long bit = 1L << cell;
+        return ((enemies[i] & bit) != 0 ? ENEMY : 0) | ((sanctuaries[i] & bit) != 0 ? SANCTUARY : 0) |
+               ((portals[i] & bit) != 0 ? PORTAL : 0) | ((unvisited[i] & bit) != 0 ? UNVISITED : 0);
+    }
+    private void update(int i, long bit, int flags) {
+        enemies[i] = (flags & ENEMY) != 0 ? enemies[i] | bit : enemies[i] & ~bit;
+        sanctuaries[i] = (flags & SANCTUARY) != 0 ? sanctuaries[i] | bit : sanctuaries[i] & ~bit;
+        portals[i] = (flags & PORTAL) != 0 ? portals[i] | bit : portals[i] & ~bit;
+        unvisited[i] = (flags & UNVISITED) != 0 ? unvisited[i] | bit : unvisited[i] & ~bit;
+    }
+    // called by the grid after the type or the visited bit of a cell changed
+    void cellChanged(int x, int y) {
+        int cell = cell(x, y);
+        int before = flags(cell), after = flags(map.getType(x, y), map.isVisited(x, y));
+        if (before == after)
+            return;
+        update(tile(x, y), 1L << bit(x, y), after);
+        for (DistanceField field : fields)
+            if (field != null)
+                field.cellChanged(cell, before, after);
+    }
+    // computed on first use, then repaired as the map changes
+    public DistanceField field(PathTarget target, EnemyPolicy policy) {
+        int k = target.ordinal() * POLICIES.length + policy.ordinal();
+        if (fields[k] == null)
+            fields[k] = new DistanceField(this, target, policy);
+        return fields[k];
+    }
+    // empty buckets for a search with ring buckets, and the cells already settled: everything outside the map
+    long[] startSearch(int ring) {
+        if (settled == null)
+            settled = new long[inside.length];
+        if (buckets.length < ring) {
+            buckets = new long[ring][inside.length];
+            lists = new int[ring][inside.length];
+            sizes = new int[ring];
+        }
+        for (int i = 0; i < settled.length; i++)
+            settled[i] = ~inside[i];
+        pending = 0;
+        return settled;
+    }
+    // adds cells of tile i to bucket b, the tile going on the list of the bucket when it was empty
+    void add(int b, int i, long bits) {
+        if (bits == 0)
+            return;
+        long[] bucket = buckets[b];
+        if (bucket[i] == 0) {
+            lists[b][sizes[b]++] = i;
+            pending++;
+        }
+        bucket[i] |= bits;
+    }
+    // adds the neighbours of cells of tile i to bucket b, leaving out the settled ones
+    void spread(long bits, int i, int b) {
+        long[] settled = this.settled;
+        long within = ((bits << 1) & ~COLUMN_0) | ((bits >>> 1) & ~COLUMN_7) | (bits << 8) | (bits >>> 8);
+        add(b, i, within & ~settled[i]);
+        int tx = i & (tilesX - 1);
+        if (tx + 1 < tilesX)
+            add(b, i + 1, ((bits & COLUMN_7) >>> 7) & ~settled[i + 1]);
+        if (tx > 0)
+            add(b, i - 1, ((bits & COLUMN_0) << 7) & ~settled[i - 1]);
+        if (i + tilesX < settled.length)
+            add(b, i + tilesX, (bits >>> 56) & ~settled[i + tilesX]);
+        if (i >= tilesX)
+            add(b, i - tilesX, (bits << 56) & ~settled[i - tilesX]);
+    }
+    // cleared bitset over the cell numbers, with room for as many invalidated cells and a second bitset
+    // for the changed cells
+    long[] invalid() {
+        if (invalid == null) {
+            invalid = new long[inside.length];
+            changed = new long[inside.length];
+            invalidCells = new int[inside.length << 6];
+        }
+        return invalid;
+    }
+}
+
+// binary min-heap of longs, the repairs push the distance in the high half and the cell in the low half
+class LongHeap {
+    private long[] heap = new long[64];
+    private int size;
+    boolean isEmpty() {
+        return size == 0;
+    }
+    void push(int priority, int value) {
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+        long item = ((long) priority << 32) | (value & 0xffffffffL);
+        int i = size++;
+        while (i > 0 && heap[(i - 1) >>> 1] > item) {
+            heap[i] = heap[(i - 1) >>> 1];
+            i = (i - 1) >>> 1;
+        }
+        heap[i] = item;
+    }
+    long pop() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child])
+                child++;
+            if (heap[child] >= last)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+}
@@ -0,0 +1,354 @@
+package leagueofwarriors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/*
+ * Write-ahead log of the changes to an AccountStore: games played, character level and exp, passwords and
+ * characters added or removed. Records hold absolute values, so replaying one twice is harmless. They are
+ * type, store generation, account, character, two values, then for a password or a new character name the
+ * UTF-8 string (whose length is the second value), and a checksum of everything before; 25 bytes without one.
+ * Accounts and characters are numbered by their place in the store, which only means something for the
+ * store the records were written for, so records of another generation (a store since replaced) are skipped.
+ * A single writer thread takes whatever was appended meanwhile, writes it followed by a COMMIT record with one
+ * fsync, then applies it to the mapped store. A batch that fails to write is cut off again before the next
+ * one, so a batch is only ever followed by acknowledged ones. Recovery stops at the first record that is torn;
+ * that is the end of the log unless a COMMIT follows it, which means acknowledged records would be lost, so
+ * recovery fails instead. Once the log grows past a threshold the store is forced to disk, which makes it the
+ * new snapshot, and the log is truncated.
+ */
+class ProgressLog implements Closeable {
+    static final int RECORD_SIZE = 25;
+    static final int HEADER_SIZE = RECORD_SIZE - 4;
+    // longest string a record carries, in UTF-8 bytes
+    static final int MAX_STRING = 1024;
+    static final int MAX_BATCH = 4096;
+    static final long COMPACT_THRESHOLD = 4L << 20;
+    private static final byte GAMES_PLAYED = 1, CHARACTER_PROGRESS = 2, PASSWORD = 3, CHARACTER_ADDED = 4,
+                              CHARACTER_REMOVED = 5, COMMIT = 6;
+    private static class Entry {
+        final byte type;
+        final int account, character, first, second;
+        // the string of a PASSWORD or CHARACTER_ADDED record, null for the others
+        final byte[] string;
+        final CompletableFuture<Void> durable = new CompletableFuture<>();
+        Entry(byte type, int account, int character, int first, int second) {
+            this(type, account, character, first, second, null);
+        }
+        Entry(byte type, int account, int character, int first, String string) {
+            this(type, account, character, first, 0, string.getBytes(StandardCharsets.UTF_8));
+        }
+        private Entry(byte type, int account, int character, int first, int second, byte[] string) {
+            if (string != null && string.length > MAX_STRING)
+                throw new IllegalArgumentException("Longer than " + MAX_STRING + " bytes: " + string.length);
+            this.type = type;
+            this.account = account;
+            this.character = character;
+            this.first = first;
+            this.second = string != null ? string.length : second;
+            this.string = string;
+        }
+    }
+    // marks the end of the queue when closing
+    private static final Entry CLOSE = new Entry((byte) 0, 0, 0, 0, 0);
+    private final FileChannel channel;
+    private final AccountStore store;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect((MAX_BATCH + 1) * RECORD_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private final Thread writer;
+    private boolean closed;
+    // set when a failed batch could not be cut off, the records after it would not be recovered
+    private IOException broken;
+    private long batches, records;
+    private ProgressLog(FileChannel channel, AccountStore store) {
+        this.channel = channel;
+        this.store = store;
+        writer = new Thread(this::writeLoop, "progress-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    // replays what the last run logged into the store before accepting new records
+    public static ProgressLog open(Path path, AccountStore store) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        recover(channel, store);
+        return new ProgressLog(channel, store);
+    }
+    // only replays the log into the store, before the store is replaced by an import
+    public static void replay(Path path, AccountStore store) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            recover(channel, store);
+        }
+    }
+    private static void recover(FileChannel channel, AccountStore store) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE + MAX_STRING);
+        CRC32C crc = new CRC32C();
+        long position = 0;
+        int replayed = 0, skipped = 0;
+        while (true) {
+            int length = readRecord(channel, record, crc, position);
+            if (length < 0) {
+                // a torn write at the end of the log, nothing after it was acknowledged
+                if (!hasCommitAfter(channel, record, crc, position))
+                    break;
+                throw new IOException("Progress log is corrupt at " + position + " of " + channel.size() +
+                                      ", acknowledged records follow");
+            }
+            position += HEADER_SIZE + length + 4;
+            byte type = record.get(0);
+            if (type == COMMIT)
+                continue;
+            if (record.getInt(1) != store.getGeneration()) {
+                skipped++;
+                continue;
+            }
+            byte[] string = hasString(type) ? Arrays.copyOfRange(record.array(), HEADER_SIZE, HEADER_SIZE + length)
+                                            : null;
+            apply(store, type, record.getInt(5), record.getInt(9), record.getInt(13), record.getInt(17), string);
+            replayed++;
+        }
+        store.force();
+        channel.truncate(0);
+        channel.force(true);
+        if (replayed > 0)
+            System.out.println("Recovered " + replayed + " progress records");
+        if (skipped > 0)
+            System.out.println("! Skipped " + skipped + " progress records of another account store !");
+    }
+    // reads the record at position, returns the length of its string or -1 when it is torn or not a record
+    private static int readRecord(FileChannel channel, ByteBuffer record, CRC32C crc, long position)
+            throws IOException {
+        if (!read(channel, record, position, HEADER_SIZE))
+            return -1;
+        byte type = record.get(0);
+        int length = hasString(type) ? record.getInt(17) : 0;
+        if (length < 0 || length > MAX_STRING || !read(channel, record, position, HEADER_SIZE + length + 4))
+            return -1;
+        crc.reset();
+        crc.update(record.array(), 0, HEADER_SIZE + length);
+        return (int) crc.getValue() == record.getInt(HEADER_SIZE + length) ? length : -1;
+    }
+    // whether a COMMIT record starts anywhere after a torn one, the records could be of any length in between
+    private static boolean hasCommitAfter(FileChannel channel, ByteBuffer record, CRC32C crc, long torn)
+            throws IOException {
+        long size = channel.size();
+        ByteBuffer types = ByteBuffer.allocate(1 << 16);
+        for (long start = torn + 1; start + RECORD_SIZE <= size; start += types.capacity()) {
+            types.clear();
+            while (types.hasRemaining() && channel.read(types, start + types.position()) > 0)
+                ;
+            for (int i = 0; i < types.position(); i++)
+                if (types.get(i) == COMMIT && start + i + RECORD_SIZE <= size &&
+                    readRecord(channel, record, crc, start + i) == 0 && record.get(0) == COMMIT &&
+                    ((long) record.getInt(13) << 32 | record.getInt(17) & 0xFFFFFFFFL) == start + i)
+                    return true;
+        }
+        return false;
+    }
+    // the first size bytes of the record at position, false when the log ends before
+    private static boolean read(FileChannel channel, ByteBuffer record, long position, int size) throws IOException {
+        record.clear().limit(size);
+        while (record.hasRemaining() && channel.read(record, position + record.position()) > 0)
+            ;
+        return !record.hasRemaining();
+    }
+    private static boolean hasString(byte type) {
+        return type == PASSWORD || type == CHARACTER_ADDED;
+    }
+    private static void apply(AccountStore store, byte type, int account, int character, int first, int second,
+                              byte[] string) throws IOException {
+        if (account < 0 || account >= store.size())
+            return;
+        int count = store.getCharacterCount(account);
+        switch (type) {
+            case GAMES_PLAYED:
+                store.setGamesPlayed(account, first);
+                break;
+            case CHARACTER_PROGRESS:
+                if (character >= 0 && character < count)
+                    store.setProgress(account, character, first, second);
+                break;
+            case PASSWORD:
+                store.setPassword(account, new String(string, StandardCharsets.UTF_8));
+                break;
+            case CHARACTER_ADDED:
+                if (character >= 0 && character <= count)
+                    store.setCharacter(account, character, new String(string, StandardCharsets.UTF_8),
+                                       AccountStore.professionName(first));
+                break;
+            case CHARACTER_REMOVED:
+                if (character >= 0 && character < count)
+                    store.removeCharacter(account, character);
+                break;
+        }
+    }
+    public CompletableFuture<Void> logGamesPlayed(int account, int gamesPlayed) {
+        return append(new Entry(GAMES_PLAYED, account, 0, gamesPlayed, 0));
+    }
+    public CompletableFuture<Void> logProgress(int account, int character, int level, int exp) {
+        return append(new Entry(CHARACTER_PROGRESS, account, character, level, exp));
+    }
+    // logs games played and the progress of one character of the account
+    public CompletableFuture<Void> logAccount(int account, Account acc, Character character) {
+        logGamesPlayed(account, acc.gamesPlayed);
+        int i = acc.characters.indexOf(character);
+        if (i == -1)
+            return CompletableFuture.completedFuture(null);
+        return logProgress(account, store.slot(account, i), character.level, character.exp);
+    }
+    public CompletableFuture<Void> logPassword(int account, String password) {
+        return append(new Entry(PASSWORD, account, 0, 0, password));
+    }
+    // the character is the slot of the new one, the next after the last
+    public CompletableFuture<Void> logCharacterAdded(int account, int character, String profession, String name) {
+        return append(new Entry(CHARACTER_ADDED, account, character, AccountStore.professionIndex(profession), name));
+    }
+    public CompletableFuture<Void> logCharacterRemoved(int account, int character) {
+        return append(new Entry(CHARACTER_REMOVED, account, character, 0, 0));
+    }
+    private CompletableFuture<Void> append(Entry entry) {
+        synchronized (queue) {
+            if (closed)
+                entry.durable.completeExceptionally(new IOException("Progress log is closed"));
+            else
+                queue.add(entry);
+        }
+        return entry.durable;
+    }
+    private void writeLoop() {
+        ArrayList<Entry> batch = new ArrayList<>(MAX_BATCH);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+            } catch (InterruptedException e) {
+                closing = true;
+            }
+            if (batch.remove(CLOSE)) {
+                closing = true;
+                // whatever was queued before close still gets written
+                queue.drainTo(batch);
+                batch.remove(CLOSE);
+            }
+            try {
+                for (int start = 0; start < batch.size(); start += MAX_BATCH)
+                    commit(batch.subList(start, Math.min(batch.size(), start + MAX_BATCH)));
+                if (channel.size() >= COMPACT_THRESHOLD || (closing && channel.size() > 0))
+                    compact();
+                for (Entry entry : batch)
+                    entry.durable.complete(null);
+            } catch (IOException e) {
+                for (Entry entry : batch)
+                    entry.durable.completeExceptionally(e);
+            }
+            batch.clear();
+        }
+    }
+    private void commit(List<Entry> entries) throws IOException {
+        if (entries.isEmpty())
+            return;
+        if (broken != null)
+            throw broken;
+        long start = channel.size();
+        try {
+            buffer.clear();
+            long position = start;
+            for (Entry entry : entries)
+                position = put(position, entry);
+            // ends the batch, with its own position so that a string in some record cannot pass for one
+            long end = position + buffer.position();
+            position = put(position, new Entry(COMMIT, 0, 0, (int) (end >>> 32), (int) end));
+            write(position);
+            // one fsync for the whole group
+            channel.force(false);
+        } catch (IOException e) {
+            // what was written of the batch is cut off, so the next one does not follow a torn record
+            buffer.clear();
+            try {
+                channel.truncate(start);
+                channel.force(false);
+            } catch (IOException truncate) {
+                e.addSuppressed(truncate);
+                broken = e;
+            }
+            throw e;
+        }
+        for (Entry entry : entries)
+            apply(store, entry.type, entry.account, entry.character, entry.first, entry.second, entry.string);
+        batches++;
+        records += entries.size();
+    }
+    // adds the record to the buffer, writing the buffer first when it is full; returns where the buffer goes
+    private long put(long position, Entry entry) throws IOException {
+        int length = entry.string == null ? 0 : entry.string.length;
+        // records with a string can fill the buffer before MAX_BATCH records
+        if (buffer.remaining() < RECORD_SIZE + length)
+            position = write(position);
+        header.clear();
+        header.put(entry.type).putInt(store.getGeneration()).putInt(entry.account).putInt(entry.character)
+              .putInt(entry.first).putInt(entry.second);
+        crc.reset();
+        crc.update(header.array(), 0, HEADER_SIZE);
+        buffer.put(header.array());
+        if (entry.string != null) {
+            crc.update(entry.string, 0, length);
+            buffer.put(entry.string);
+        }
+        buffer.putInt((int) crc.getValue());
+        return position;
+    }
+    // returns the position after what was in the buffer
+    private long write(long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+        buffer.clear();
+        return position;
+    }
+    // the store already holds everything in the log, so once it is on disk the log can start over
+    private void compact() throws IOException {
+        store.force();
+        channel.truncate(0);
+        channel.force(true);
+    }
+    long getBatches() {
+        return batches;
+    }
+    long getRecords() {
+        return records;
+    }
+    // writes everything appended so far and stops the writer
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (closed)
+                return;
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
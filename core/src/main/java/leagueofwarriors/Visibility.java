@@ -0,0 +1,128 @@
+package leagueofwarriors;
+
+import java.util.Arrays;
+
+// told about every cell whose visibility changed, right after the step that changed it
+interface VisibilityListener {
+    // change is SHOWN or HIDDEN, with DISCOVERED when the cell is seen for the first time
+    void visibilityChanged(int x, int y, int change);
+}
+
+/*
+ * Fog of war of a Grid. The cells within the sight radius of the player are visible (a disk, nothing blocks
+ * the sight) and every cell that has been visible is explored, which is the visited bit of the grid; both are
+ * bitsets kept by the grid. A step only goes over the disks around the old and the new position, so it costs
+ * O(radius²) on any map, and the listeners only hear about the cells that changed.
+ * With the default radius of 0 only the cell of the player is visible, which explores the cells walked on.
+ */
+class Visibility {
+    static final int SHOWN = 1, HIDDEN = 2, DISCOVERED = 4;
+    private static final VisibilityListener[] NO_LISTENERS = new VisibilityListener[0];
+    private final Grid map;
+    private int radius;
+    // half width of each row of the disk, from -radius to radius
+    private int[] span = {0};
+    // center of the disk, -1 until the player is placed
+    private int centerX = -1, centerY = -1;
+    private VisibilityListener[] listeners = NO_LISTENERS;
+    Visibility(Grid map) {
+        this.map = map;
+    }
+    public int getRadius() {
+        return radius;
+    }
+    // rows of a disk of radius r: dx² + dy² <= r² + r, which is rounder than r² for small radii
+    private static int[] span(int radius) {
+        int[] span = new int[2 * radius + 1];
+        for (int dy = -radius; dy <= radius; dy++)
+            span[dy + radius] = (int) Math.sqrt((double) radius * radius + radius - (double) dy * dy);
+        return span;
+    }
+    public void setRadius(int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("Negative sight radius " + radius);
+        if (radius == this.radius)
+            return;
+        int oldRadius = this.radius;
+        int[] oldSpan = span;
+        this.radius = radius;
+        span = span(radius);
+        if (centerX >= 0)
+            update(centerX, centerY, oldRadius, oldSpan);
+    }
+    public void addListener(VisibilityListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+    public void removeListener(VisibilityListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] != listener)
+                continue;
+            VisibilityListener[] removed = new VisibilityListener[listeners.length - 1];
+            System.arraycopy(listeners, 0, removed, 0, i);
+            System.arraycopy(listeners, i + 1, removed, i, removed.length - i);
+            listeners = removed;
+            return;
+        }
+    }
+    public boolean inSight(int x, int y) {
+        int dy = y - centerY;
+        return centerX >= 0 && dy >= -radius && dy <= radius && Math.abs(x - centerX) <= span[dy + radius];
+    }
+    // called by the grid when the player is placed on a cell
+    void moveTo(int x, int y) {
+        int oldX = centerX, oldY = centerY;
+        centerX = x;
+        centerY = y;
+        update(oldX, oldY, radius, span);
+    }
+    // hides what the old disk saw and the new one does not, then shows what is new in the new one
+    private void update(int oldX, int oldY, int oldRadius, int[] oldSpan) {
+        if (oldX >= 0) {
+            for (int dy = -oldRadius; dy <= oldRadius; dy++) {
+                int y = oldY + dy;
+                if (y < 0 || y >= map.width)
+                    continue;
+                int last = Math.min(map.length - 1, oldX + oldSpan[dy + oldRadius]);
+                for (int x = Math.max(0, oldX - oldSpan[dy + oldRadius]); x <= last; x++) {
+                    if (!inSight(x, y) && map.isVisible(x, y)) {
+                        map.setVisible(x, y, false);
+                        notify(x, y, HIDDEN);
+                    }
+                }
+            }
+        }
+        for (int dy = -radius; dy <= radius; dy++) {
+            int y = centerY + dy;
+            if (y < 0 || y >= map.width)
+                continue;
+            int last = Math.min(map.length - 1, centerX + span[dy + radius]);
+            for (int x = Math.max(0, centerX - span[dy + radius]); x <= last; x++) {
+                if (map.isVisible(x, y))
+                    continue;
+                map.setVisible(x, y, true);
+                int change = SHOWN;
+                if (!map.isVisited(x, y)) {
+                    map.setVisited(x, y);
+                    change |= DISCOVERED;
+                }
+                notify(x, y, change);
+            }
+        }
+    }
+    private void notify(int x, int y, int change) {
+        for (VisibilityListener listener : listeners)
+            listener.visibilityChanged(x, y, change);
+    }
+    // forgets the position, for a grid whose visible bits were cleared
+    void reset() {
+        centerX = centerY = -1;
+    }
+    // same radius and position as another grid's, for a copy of it; listeners stay with the original
+    void copyFrom(Visibility other) {
+        radius = other.radius;
+        span = other.span;
+        centerX = other.centerX;
+        centerY = other.centerY;
+    }
+}
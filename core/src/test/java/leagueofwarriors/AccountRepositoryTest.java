@@ -0,0 +1,80 @@
+package leagueofwarriors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// accounts loaded are kept within the budget, and evicting one never loses a change the store does not have
+class AccountRepositoryTest {
+    private static final int ACCOUNTS = 200;
+    // room for ten accounts of three characters
+    private static final long BUDGET = 10 * (AccountRepository.ACCOUNT_BYTES + 3 * AccountRepository.CHARACTER_BYTES);
+    @TempDir
+    Path dir;
+
+    @Test
+    void loadedAccountsStayWithinTheBudget() throws IOException {
+        try (AccountStore store = createStore()) {
+            AccountRepository accounts = new AccountRepository(store, null, BUDGET);
+            for (int round = 0; round < 3; round++)
+                for (int i = 0; i < ACCOUNTS; i++) {
+                    assertEquals(3, accounts.roster(i).length);
+                    assertTrue(accounts.checkPassword(i, AccountStoreTest.password(i)));
+                    assertTrue(accounts.getCachedBytes() <= BUDGET, "over budget at " + i);
+                }
+        }
+    }
+
+    @Test
+    void evictedAccountsKeepTheirLoggedChanges() throws Exception {
+        try (AccountStore store = createStore();
+             ProgressLog log = ProgressLog.open(dir.resolve("progress.log"), store)) {
+            AccountRepository accounts = new AccountRepository(store, log, BUDGET);
+            assertTrue(accounts.changePassword(2, AccountStoreTest.password(2), "new secret"));
+            int key = accounts.addCharacter(2, "Newbie", "Mage");
+            assertTrue(accounts.levelCompleted(2, key, 5, 40));
+            // the log writes in order, so once this is in the store the changes above are too
+            log.logGamesPlayed(0, 0).get();
+            for (int i = 3; i < ACCOUNTS; i++)
+                accounts.roster(i);
+            assertFalse(accounts.isCached(2));
+            assertTrue(accounts.checkPassword(2, "new secret"));
+            // one more than the 2 it was imported with
+            assertEquals(3, accounts.getGamesPlayed(2));
+            CharacterRecord[] roster = accounts.roster(2);
+            assertEquals(4, roster.length);
+            assertEquals("Newbie", roster[3].name);
+            assertEquals(key, roster[3].key);
+            assertEquals(5, roster[3].level);
+            assertEquals(40, roster[3].exp);
+        }
+    }
+
+    @Test
+    void changedAccountsStayWithoutALog() throws IOException {
+        try (AccountStore store = createStore()) {
+            AccountRepository accounts = new AccountRepository(store, null, BUDGET);
+            assertTrue(accounts.changePassword(2, AccountStoreTest.password(2), "new secret"));
+            assertTrue(accounts.removeCharacter(2, 0));
+            for (int i = 3; i < ACCOUNTS; i++)
+                accounts.roster(i);
+            assertTrue(accounts.isCached(2));
+            assertTrue(accounts.checkPassword(2, "new secret"));
+            assertEquals(2, accounts.roster(2).length);
+            // the store never got them
+            assertTrue(store.checkPassword(2, AccountStoreTest.password(2)));
+        }
+    }
+
+    private AccountStore createStore() throws IOException {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        AccountStoreTest.writeAccounts(json, ACCOUNTS);
+        AccountStore.importJson(json, storePath, error -> fail(error));
+        return AccountStore.open(storePath);
+    }
+}
@@ -0,0 +1,294 @@
+package leagueofwarriors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// numbers of the packed strings section can straddle two pages, which 64 byte pages make happen all the time
+class AccountStoreTest {
+    private static final int SMALL_PAGE_BITS = 6;
+    private static final String[] PROFESSIONS = {"Warrior", "Mage", "Rogue"};
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsNumbersAtEveryOffsetAcrossPages() throws IOException {
+        Path file = dir.resolve("region");
+        byte[] bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) (i * 37 + 11);
+        Files.write(file, bytes);
+        ByteBuffer expected = ByteBuffer.wrap(bytes);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedRegion region = new MappedRegion(channel, FileChannel.MapMode.READ_WRITE, 3, bytes.length - 3,
+                                                   SMALL_PAGE_BITS);
+            for (int pos = 0; pos + 8 <= region.size; pos++) {
+                assertEquals(expected.getInt(pos + 3), region.getInt(pos), "int at " + pos);
+                assertEquals(expected.getLong(pos + 3), region.getLong(pos), "long at " + pos);
+            }
+            for (int pos = 0; pos + 4 <= region.size; pos += 5) {
+                region.putInt(pos, 0x01020304 * pos);
+                assertEquals(0x01020304 * pos, region.getInt(pos), "int written at " + pos);
+            }
+        }
+    }
+
+    @Test
+    void importedAccountsRoundTripWithSmallPages() throws IOException {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        int count = 200;
+        writeAccounts(json, count);
+        assertEquals(count, AccountStore.importJson(json, storePath, error -> fail(error)));
+        try (AccountStore store = AccountStore.open(storePath, SMALL_PAGE_BITS)) {
+            for (int i = 0; i < count; i++) {
+                int account = store.find(email(i));
+                assertEquals(i, account);
+                assertTrue(store.checkPassword(account, password(i)));
+                Account loaded = store.load(account);
+                assertEquals(email(i), loaded.getEmail());
+                assertEquals(name(i), loaded.info.name);
+                assertEquals(games(i), new ArrayList<>(loaded.info.favoriteGames));
+                assertEquals(3, loaded.characters.size());
+                for (int j = 0; j < 3; j++) {
+                    Character character = loaded.characters.get(j);
+                    assertEquals(name(i) + j, character.name);
+                    assertEquals(PROFESSIONS[j], character.getClass().getSimpleName());
+                    assertEquals(level(i, j), character.level);
+                }
+            }
+            assertEquals(-1, store.find("nobody@example.com"));
+        }
+    }
+
+    @Test
+    void importOverAStoreKeepsItsAccounts() throws IOException {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        writeAccounts(json, 10);
+        AccountStore.importJson(json, storePath, error -> fail(error));
+        int generation;
+        try (AccountStore store = AccountStore.open(storePath)) {
+            store.setGamesPlayed(3, 42);
+            store.setProgress(3, 1, 20, 7);
+            generation = store.getGeneration();
+        }
+        // accounts.json changed: one account less, two new ones
+        writeAccounts(json, 12);
+        String json12 = Files.readString(json);
+        Files.writeString(json, json12.replace(email(0), "renamed@example.com"));
+        AccountStore previous = AccountStore.open(storePath);
+        assertEquals(13, AccountStore.importJson(json, storePath, error -> fail(error), previous));
+        try (AccountStore store = AccountStore.open(storePath)) {
+            assertNotEquals(generation, store.getGeneration());
+            int account = store.find(email(3));
+            assertEquals(42, store.getGamesPlayed(account));
+            assertEquals(20, store.getLevel(account, 1));
+            assertEquals(7, store.getExp(account, 1));
+            assertNotEquals(-1, store.find(email(0)));
+            assertNotEquals(-1, store.find("renamed@example.com"));
+            assertNotEquals(-1, store.find(email(11)));
+        }
+    }
+
+    @Test
+    void progressLogSkipsRecordsOfAnotherStore() throws Exception {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        Path logPath = dir.resolve("progress.log");
+        writeAccounts(json, 10);
+        AccountStore.importJson(json, storePath, error -> fail(error));
+        // left open like after a crash, so the record stays in the log
+        ProgressLog log = ProgressLog.open(logPath, AccountStore.open(storePath));
+        log.logProgress(5, 2, 25, 3).get();
+        Path otherPath = dir.resolve("other.store");
+        AccountStore.importJson(json, otherPath, error -> fail(error));
+        try (AccountStore other = AccountStore.open(otherPath)) {
+            ProgressLog.replay(logPath, other);
+            assertEquals(level(5, 2), other.getLevel(5, 2));
+        }
+        assertEquals(0, Files.size(logPath));
+    }
+
+    @Test
+    void passwordAndRosterChangesSurviveARestart() throws IOException {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        writeAccounts(json, 10);
+        AccountStore.importJson(json, storePath, error -> fail(error));
+        try (AccountStore store = AccountStore.open(storePath);
+             ProgressLog log = ProgressLog.open(dir.resolve("progress.log"), store)) {
+            changeAccounts(new AccountRepository(store, log));
+        }
+        try (AccountStore store = AccountStore.open(storePath)) {
+            assertChanged(store);
+        }
+    }
+
+    @Test
+    void passwordAndRosterChangesAreReplayedFromTheLog() throws Exception {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        Path logPath = dir.resolve("progress.log");
+        writeAccounts(json, 10);
+        AccountStore.importJson(json, storePath, error -> fail(error));
+        Path before = dir.resolve("before.store");
+        Files.copy(storePath, before);
+        // left open like after a crash, the log is taken before it is compacted
+        AccountStore store = AccountStore.open(storePath);
+        ProgressLog log = ProgressLog.open(logPath, store);
+        changeAccounts(new AccountRepository(store, log));
+        log.logGamesPlayed(0, 1).get();
+        Path crashed = dir.resolve("crashed.log");
+        try (AccountStore replayed = AccountStore.open(before)) {
+            // twice, as when the store already had some of the log
+            for (int i = 0; i < 2; i++) {
+                Files.copy(logPath, crashed, StandardCopyOption.REPLACE_EXISTING);
+                ProgressLog.replay(crashed, replayed);
+            }
+        }
+        try (AccountStore replayed = AccountStore.open(before)) {
+            assertChanged(replayed);
+        }
+    }
+
+    @Test
+    void tornTailOfTheLogIsDropped() throws Exception {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        Path logPath = dir.resolve("progress.log");
+        writeAccounts(json, 10);
+        AccountStore.importJson(json, storePath, error -> fail(error));
+        Path before = dir.resolve("before.store");
+        Files.copy(storePath, before);
+        ProgressLog log = ProgressLog.open(logPath, AccountStore.open(storePath));
+        log.logProgress(5, 2, 25, 3).get();
+        log.logProgress(6, 1, 26, 4).get();
+        // the second batch only got partly written
+        Path crashed = dir.resolve("crashed.log");
+        Files.copy(logPath, crashed);
+        try (FileChannel channel = FileChannel.open(crashed, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (AccountStore replayed = AccountStore.open(before)) {
+            ProgressLog.replay(crashed, replayed);
+            assertEquals(25, replayed.getLevel(5, 2));
+        }
+        assertEquals(0, Files.size(crashed));
+    }
+
+    @Test
+    void corruptionBeforeAcknowledgedRecordsFailsTheReplay() throws Exception {
+        Path json = dir.resolve("accounts.json");
+        Path storePath = dir.resolve("accounts.store");
+        Path logPath = dir.resolve("progress.log");
+        writeAccounts(json, 10);
+        AccountStore.importJson(json, storePath, error -> fail(error));
+        ProgressLog log = ProgressLog.open(logPath, AccountStore.open(storePath));
+        log.logPassword(5, "secret").get();
+        log.logProgress(6, 1, 26, 4).get();
+        Path crashed = dir.resolve("crashed.log");
+        Files.copy(logPath, crashed);
+        long size = Files.size(crashed);
+        // a bit flipped in the first record
+        try (FileChannel channel = FileChannel.open(crashed, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer value = ByteBuffer.allocate(1);
+            channel.read(value, 10);
+            value.put(0, (byte) (value.get(0) ^ 1));
+            channel.write(value.flip(), 10);
+        }
+        try (AccountStore replayed = AccountStore.open(storePath)) {
+            assertThrows(IOException.class, () -> ProgressLog.replay(crashed, replayed));
+        }
+        // left as it was, to be looked at
+        assertEquals(size, Files.size(crashed));
+    }
+
+    private static void changeAccounts(AccountRepository accounts) {
+        assertTrue(accounts.changePassword(2, password(2), "new secret"));
+        int key = accounts.addCharacter(2, "Newbie", "Mage");
+        assertEquals(3, key);
+        assertTrue(accounts.recordProgress(2, key, 5, 40));
+        assertTrue(accounts.removeCharacter(2, 0));
+        // the roster is moved when it is full, twice here
+        for (int i = 0; i < 5; i++)
+            accounts.addCharacter(4, "Extra" + i, PROFESSIONS[i % 3]);
+        assertTrue(accounts.recordProgress(4, 7, 3, 9));
+    }
+    private static void assertChanged(AccountStore store) {
+        assertTrue(store.checkPassword(2, "new secret"));
+        assertFalse(store.checkPassword(2, password(2)));
+        AccountRepository accounts = new AccountRepository(store, null);
+        CharacterRecord[] roster = accounts.roster(2);
+        assertEquals(3, roster.length);
+        assertEquals(name(2) + 1, roster[0].name);
+        assertEquals(1, roster[0].key);
+        assertEquals("Newbie", roster[2].name);
+        assertEquals("Mage", roster[2].profession);
+        assertEquals(3, roster[2].key);
+        assertEquals(5, roster[2].level);
+        assertEquals(40, roster[2].exp);
+        roster = accounts.roster(4);
+        assertEquals(8, roster.length);
+        for (int j = 0; j < 3; j++) {
+            assertEquals(name(4) + j, roster[j].name);
+            assertEquals(level(4, j), roster[j].level);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals("Extra" + i, roster[3 + i].name);
+            assertEquals(PROFESSIONS[i % 3], roster[3 + i].profession);
+        }
+        assertEquals(3, roster[7].level);
+        assertEquals(9, roster[7].exp);
+        assertEquals(3, store.load(3).characters.size());
+    }
+
+    // strings of every length, so the lengths and the favorite games lists land on every offset
+    static String email(int i) {
+        return "user" + "x".repeat(i % 13) + i + "@example.com";
+    }
+    static String password(int i) {
+        return "pw" + "y".repeat(i % 7) + i;
+    }
+    private static String name(int i) {
+        return "player" + "z".repeat(i % 11) + i;
+    }
+    private static int level(int i, int j) {
+        return 1 + (i + j) % 30;
+    }
+    private static ArrayList<String> games(int i) {
+        ArrayList<String> games = new ArrayList<>();
+        for (int k = 0; k < i % 4; k++)
+            games.add("game" + k + "g".repeat(i % 5));
+        return games;
+    }
+    static void writeAccounts(Path path, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("{\"accounts\": [\n");
+            for (int i = 0; i < count; i++) {
+                out.write("{\"credentials\": {\"email\": \"" + email(i) + "\", \"password\": \"" + password(i) + "\"}, ");
+                out.write("\"name\": \"" + name(i) + "\", \"country\": \"Romania\", \"favorite_games\": [");
+                ArrayList<String> games = games(i);
+                for (int k = 0; k < games.size(); k++)
+                    out.write((k > 0 ? ", " : "") + "\"" + games.get(k) + "\"");
+                out.write("], \"maps_completed\": \"" + i % 50 + "\", \"characters\": [");
+                for (int j = 0; j < 3; j++)
+                    out.write((j > 0 ? ", " : "") + "{\"name\": \"" + name(i) + j + "\", \"profession\": \"" +
+                              PROFESSIONS[j] + "\", \"level\": \"" + level(i, j) + "\", \"experience\": " + j + "}");
+                out.write("]}" + (i < count - 1 ? "," : "") + "\n");
+            }
+            out.write("]}\n");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package leagueofwarriors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// consumers lapped by the producer skip what was overwritten, and never see an event half written
+class CombatEventBusTest {
+    private static final int CAPACITY = 8;
+
+    @Test
+    void lappedConsumerGetsTheLastCapacityMinusOneEvents() {
+        CombatEventBus bus = new CombatEventBus(CAPACITY);
+        long cursor = bus.cursor();
+        for (int i = 0; i < 3 * CAPACITY + 5; i++)
+            bus.publish(CombatEventType.DAMAGE_TAKEN, null, i);
+        ArrayList<Integer> values = new ArrayList<>();
+        cursor = bus.drain(cursor, (type, source, spell, value, extra) -> values.add(value));
+        assertEquals(3 * CAPACITY + 5, cursor);
+        assertEquals(CAPACITY - 1, values.size());
+        for (int i = 0; i < values.size(); i++)
+            assertEquals(3 * CAPACITY + 5 - (CAPACITY - 1) + i, values.get(i));
+    }
+
+    @Test
+    void consumerLappedWhileDrainingSkipsTheOverwrittenSlots() {
+        CombatEventBus bus = new CombatEventBus(CAPACITY);
+        long cursor = bus.cursor();
+        for (int i = 0; i < 4; i++)
+            bus.publish(CombatEventType.DAMAGE_TAKEN, null, i);
+        ArrayList<Integer> values = new ArrayList<>();
+        // the first event makes the producer publish until the slot of the second one is the next written
+        bus.drain(cursor, (type, source, spell, value, extra) -> {
+            if (values.isEmpty())
+                for (int i = 4; i <= CAPACITY; i++)
+                    bus.publish(CombatEventType.DAMAGE_TAKEN, null, i);
+            values.add(value);
+        });
+        assertEquals(List.of(0, 2, 3), values);
+    }
+
+    @Test
+    void concurrentProducerNeverShowsTornEvents() throws InterruptedException {
+        CombatEventBus bus = new CombatEventBus(CAPACITY);
+        final int events = 2_000_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= events; i++)
+                bus.publish(CombatEventType.DAMAGE_TAKEN, null, null, i, ~i);
+        });
+        long[] last = new long[1];
+        CombatEventListener check = (type, source, spell, value, extra) -> {
+            assertEquals(~value, extra, "torn event");
+            assertTrue(value > last[0], "events out of order");
+            last[0] = value;
+        };
+        long cursor = bus.cursor();
+        producer.start();
+        while (producer.isAlive())
+            cursor = bus.drain(cursor, check);
+        producer.join();
+        bus.drain(cursor, check);
+        assertEquals(events, last[0]);
+    }
+}
@@ -0,0 +1,82 @@
+package leagueofwarriors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the resolver follows the rules of the session: a fight resolved from the stream of a session at an encounter
+// ends the same as the session playing it with the same choices
+class CombatResolverTest {
+    private static final String[] PROFESSIONS = {"Warrior", "Mage", "Rogue"};
+
+    @Test
+    void resolvedFightsEndLikeSessionFights() {
+        int won = 0, lost = 0;
+        for (String profession : PROFESSIONS)
+            for (int level = 1; level <= ProfessionTemplate.MAX_LEVEL; level += 4)
+                for (long seed = 0; seed < 20; seed++) {
+                    GameSession session = new GameSession(CharacterFactory.create(profession, "Test", 0, level), seed,
+                                                          false, false);
+                    for (int fight = 0; fight < 3 && !session.isOver(); fight++) {
+                        walkToAnEnemy(session);
+                        if (playAndCompare(session, profession + " level " + level + " seed " + seed))
+                            won++;
+                        else
+                            lost++;
+                    }
+                }
+        // both endings were compared
+        assertTrue(won > 0 && lost > 0);
+    }
+
+    // returns whether the player won
+    private static boolean playAndCompare(GameSession session, String where) {
+        Character character = session.character;
+        Enemy enemy = session.enemy;
+        int maxHp = character.maxHp, maxMana = character.maxMana;
+        GameRandom stream = new GameRandom(0);
+        stream.setState(session.getRandom().getState());
+        CombatResult expected = new CombatResolver(stream).fight(character, enemy);
+        int turns = 0;
+        TurnResult result;
+        do {
+            turns++;
+            result = session.attack(strongestAffordable(character, enemy));
+        } while (result == TurnResult.ENEMY_TURN);
+        assertEquals(expected.turns, turns, where);
+        // the enemy was released, but nothing changed it since
+        assertEquals(expected.enemyHp, enemy.hp, where);
+        assertEquals(expected.enemyMana, enemy.mana, where);
+        if (result == TurnResult.ENEMY_KILLED) {
+            assertEquals(CombatWinner.PLAYER, expected.winner, where);
+            // the session doubles the hp and mana left after a kill
+            assertEquals(Math.min(2 * expected.playerHp, maxHp), character.hp, where);
+            assertEquals(Math.min(2 * expected.playerMana, maxMana), character.mana, where);
+            return true;
+        }
+        assertEquals(TurnResult.PLAYER_DIED, result, where);
+        assertEquals(CombatWinner.ENEMY, expected.winner, where);
+        assertEquals(0, expected.playerHp, where);
+        return false;
+    }
+
+    // what the resolver uses: the ability doing the most damage among the affordable ones, else a basic attack
+    private static int strongestAffordable(Character character, Enemy enemy) {
+        int best = -1, bestDamage = 0;
+        for (int i = 0; i < character.abilities.size(); i++) {
+            Spell ability = character.abilities.get(i);
+            int damage = character.getSpellDamage(ability, enemy);
+            if (ability.manaCost <= character.mana && damage > bestDamage) {
+                best = i;
+                bestDamage = damage;
+            }
+        }
+        return best;
+    }
+
+    private static void walkToAnEnemy(GameSession session) {
+        while (session.enemy == null)
+            if (session.travel(PathTarget.UNEXPLORED, EnemyPolicy.PREFER) == TurnResult.IMPOSSIBLE_MOVE)
+                session.travel(PathTarget.PORTAL, EnemyPolicy.PREFER);
+    }
+}
@@ -0,0 +1,106 @@
+package leagueofwarriors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// repaired distance fields match a plain Dijkstra over the map after any mix of changes, for every target and policy
+class DistanceFieldTest {
+    private static final CellEntityType[] TYPES = CellEntityType.values();
+
+    @Test
+    void repairedFieldsMatchDijkstra() {
+        SplittableRandom rng = new SplittableRandom(22);
+        for (int m = 0; m < 40; m++) {
+            // sizes on both sides of the 8x8 tiles, a few maps past the size where repairs give up for a search
+            int length = 2 + rng.nextInt(m % 4 == 0 ? 60 : 20), width = 2 + rng.nextInt(m % 4 == 0 ? 60 : 20);
+            if (length * width < 8)
+                length = 8;
+            Grid map = Grid.generateMap(length, width, 1 + rng.nextInt(10), rng.nextLong());
+            for (int y = 0; y < width; y++)
+                for (int x = 0; x < length; x++)
+                    if (rng.nextInt(3) == 0)
+                        map.setVisited(x, y);
+            assertFields(map, "map " + m);
+            for (int round = 0; round < 30; round++) {
+                // mostly a few changes like a move makes, sometimes more than a field remembers
+                int changes = rng.nextInt(8) == 0 ? 1 + rng.nextInt(100) : 1 + rng.nextInt(4);
+                for (int k = 0; k < changes; k++) {
+                    int x = rng.nextInt(length), y = rng.nextInt(width);
+                    if (rng.nextInt(4) == 0)
+                        map.setVisited(x, y);
+                    else
+                        map.setType(x, y, TYPES[rng.nextInt(TYPES.length)]);
+                }
+                // some fields skip rounds, so their changes pile up before they are repaired
+                if (rng.nextInt(3) != 0)
+                    assertFields(map, "map " + m + " round " + round);
+            }
+        }
+    }
+
+    private static void assertFields(Grid map, String where) {
+        for (PathTarget target : PathTarget.values())
+            for (EnemyPolicy policy : EnemyPolicy.values()) {
+                DistanceField field = map.paths().field(target, policy);
+                int[] expected = dijkstra(map, target, policy);
+                for (int y = 0; y < map.width; y++)
+                    for (int x = 0; x < map.length; x++)
+                        assertEquals(expected[y * map.length + x], field.distance(x, y),
+                                     where + " " + target + " " + policy + " at " + x + "," + y);
+            }
+    }
+
+    // from the targets outwards: a cell is the cost of walking into a neighbour plus the distance of that neighbour
+    private static int[] dijkstra(Grid map, PathTarget target, EnemyPolicy policy) {
+        int[] dist = new int[map.length * map.width];
+        Arrays.fill(dist, DistanceField.UNREACHABLE);
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[0], b[0]));
+        for (int y = 0; y < map.width; y++)
+            for (int x = 0; x < map.length; x++)
+                if (isTarget(map, x, y, target)) {
+                    dist[y * map.length + x] = 0;
+                    queue.add(new int[] {0, x, y});
+                }
+        while (!queue.isEmpty()) {
+            int[] top = queue.poll();
+            int d = top[0], x = top[1], y = top[2];
+            if (d != dist[y * map.length + x])
+                continue;
+            int through = d + cost(map, x, y, policy);
+            for (int direction = 0; direction < 4; direction++) {
+                int nx = x + Pathfinder.DX[direction], ny = y + Pathfinder.DY[direction];
+                if (nx < 0 || ny < 0 || nx >= map.length || ny >= map.width || through >= dist[ny * map.length + nx])
+                    continue;
+                dist[ny * map.length + nx] = through;
+                queue.add(new int[] {through, nx, ny});
+            }
+        }
+        return dist;
+    }
+    private static boolean isTarget(Grid map, int x, int y, PathTarget target) {
+        switch (target) {
+            case PORTAL:
+                return map.getType(x, y) == CellEntityType.PORTAL;
+            case SANCTUARY:
+                return map.getType(x, y) == CellEntityType.SANCTUARY;
+            default:
+                return !map.isVisited(x, y);
+        }
+    }
+    private static int cost(Grid map, int x, int y, EnemyPolicy policy) {
+        boolean enemy = map.getType(x, y) == CellEntityType.ENEMY;
+        switch (policy) {
+            case AVOID:
+                return enemy ? policy.highCost : 1;
+            case PREFER:
+                return enemy ? 1 : policy.highCost;
+            default:
+                return 1;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package leagueofwarriors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// world mode sessions are replayed and restored from checkpoints like the others, only travel is refused;
+// inputs that are not valid are refused before they are recorded
+class GameSessionTest {
+    private static final int WORLD_SIZE = 1_000_000;
+
+    @Test
+    void worldSessionReplaysThroughCheckpoints() {
+        // at the last level, so it lives through the whole walk
+        GameSession session = new GameSession(CharacterFactory.create("Warrior", "Test", 0, ProfessionTemplate.MAX_LEVEL),
+                                              7, false, true, WORLD_SIZE);
+        assertTrue(session.map instanceof ChunkedGrid);
+        // long rows, so the walk leaves the chunks it started in
+        int turns = 0;
+        while (turns < 3 * SessionReplay.CHECKPOINT_INTERVAL && !session.isOver()) {
+            if (session.enemy != null)
+                session.attack(-1);
+            else
+                session.move(turns % 200 == 199 ? GameSession.SOUTH : (turns / 200 & 1) == 0 ? GameSession.EAST
+                                                                                              : GameSession.WEST);
+            turns++;
+        }
+        SessionReplay replay = new SessionReplay(session.getRecording());
+        replay.runToEnd();
+        assertSameState(session, replay.getSession());
+        replay.seek(SessionReplay.CHECKPOINT_INTERVAL + 10);
+        replay.seek(session.getTurns());
+        assertSameState(session, replay.getSession());
+    }
+
+    @Test
+    void worldSessionRefusesTravel() {
+        GameSession session = new GameSession(CharacterFactory.create("Mage", "Test", 0, 1), 7, false, false,
+                                              WORLD_SIZE);
+        assertThrows(IllegalStateException.class, () -> session.travel(PathTarget.PORTAL, EnemyPolicy.AVOID));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new GameSession(CharacterFactory.create("Mage", "Test", 0, 1), 7, false, false, 10));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new GameSession(CharacterFactory.create("Mage", "Test", 0, 1), 7, true, false, 1000));
+    }
+
+    @Test
+    void attackRejectsUnknownAbilities() {
+        GameSession session = new GameSession(CharacterFactory.create("Mage", "Test", 0, ProfessionTemplate.MAX_LEVEL),
+                                              7, false, true, WORLD_SIZE);
+        for (int i = 0; session.enemy == null; i++)
+            session.move((i / 50 & 1) == 0 ? GameSession.EAST : GameSession.SOUTH);
+        int turns = session.getTurns();
+        assertThrows(IllegalArgumentException.class, () -> session.attack(-2));
+        assertThrows(IllegalArgumentException.class, () -> session.attack(GameSession.MAX_SPELLS));
+        // nothing recorded, so the recording still replays
+        assertEquals(turns, session.getTurns());
+        assertEquals(turns, session.getRecording().size());
+    }
+
+    @Test
+    void critsArePublishedOnlyWhenDealt() {
+        Character character = CharacterFactory.create("Warrior", "Test", 0, ProfessionTemplate.MAX_LEVEL);
+        character.events = new CombatEventBus(CombatEventBus.DEFAULT_CAPACITY);
+        GameSession session = new GameSession(character, 7, false, true, WORLD_SIZE);
+        int crits = 0, dealt = 0;
+        for (int i = 0; crits < 20 && !session.isOver(); i++) {
+            if (session.enemy == null) {
+                session.move((i / 50 & 1) == 0 ? GameSession.EAST : GameSession.SOUTH);
+                continue;
+            }
+            // shown before the attack, like the games do
+            long cursor = character.events.cursor();
+            int damage = session.getBaseDamage();
+            assertEquals(damage, session.getBaseDamage());
+            assertEquals(0, countCrits(character.events, cursor, character));
+            boolean crit = character.isCrit(damage);
+            crits += crit ? 1 : 0;
+            session.attack(-1);
+            assertEquals(crit ? 1 : 0, countCrits(character.events, cursor, character));
+            dealt++;
+        }
+        assertTrue(crits > 0 && crits < dealt);
+    }
+
+    private static int countCrits(CombatEventBus events, long cursor, Entity source) {
+        int[] crits = new int[1];
+        events.drain(cursor, (type, from, spell, value, extra) -> {
+            if (type == CombatEventType.CRIT && from == source)
+                crits[0]++;
+        });
+        return crits[0];
+    }
+
+    private static void assertSameState(GameSession expected, GameSession actual) {
+        assertEquals(expected.getTurns(), actual.getTurns());
+        assertEquals(expected.map == null, actual.map == null);
+        if (expected.map != null) {
+            assertEquals(expected.map.playerX, actual.map.playerX);
+            assertEquals(expected.map.playerY, actual.map.playerY);
+        }
+        assertEquals(expected.character.exp, actual.character.exp);
+        assertEquals(expected.character.hp, actual.character.hp);
+        assertEquals(expected.nrEnemiesKilled, actual.nrEnemiesKilled);
+        assertEquals(expected.isOver(), actual.isOver());
+    }
+}
@@ -0,0 +1,75 @@
+package leagueofwarriors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a seed gives the same map whatever pool fills the rows, and every map meets the quotas however small it is
+class GridTest {
+    @Test
+    void sameSeedGivesTheSameMapOnAnyPool() throws Exception {
+        // large enough to be filled in parallel
+        int length = 512, width = 256;
+        for (long seed = 0; seed < 4; seed++) {
+            long mapSeed = seed;
+            Grid common = Grid.generateMap(length, width, 10, mapSeed);
+            ForkJoinPool single = new ForkJoinPool(1);
+            try {
+                Grid sequential = single.submit(() -> Grid.generateMap(length, width, 10, mapSeed)).get();
+                assertEquals(common.playerX, sequential.playerX);
+                assertEquals(common.playerY, sequential.playerY);
+                for (int y = 0; y < width; y++)
+                    for (int x = 0; x < length; x++)
+                        assertEquals(common.getType(x, y), sequential.getType(x, y),
+                                     "seed " + seed + " at " + x + "," + y);
+            } finally {
+                single.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void smallMapsMeetTheQuotasForEverySeed() {
+        int[][] sizes = {{2, 4}, {4, 2}, {3, 3}};
+        for (int[] size : sizes)
+            for (int minDistance = 1; minDistance <= 6; minDistance++)
+                for (long seed = 0; seed < 2000; seed++) {
+                    Grid map = Grid.generateMap(size[0], size[1], minDistance, seed);
+                    int[] counts = new int[CellEntityType.values().length];
+                    for (int y = 0; y < map.width; y++)
+                        for (int x = 0; x < map.length; x++)
+                            counts[map.getType(x, y).ordinal()]++;
+                    String where = size[0] + "x" + size[1] + " distance " + minDistance + " seed " + seed;
+                    assertEquals(1, counts[CellEntityType.PLAYER.ordinal()], where);
+                    assertEquals(1, counts[CellEntityType.PORTAL.ordinal()], where);
+                    assertTrue(counts[CellEntityType.SANCTUARY.ordinal()] >= 2, where);
+                    assertTrue(counts[CellEntityType.ENEMY.ordinal()] >= 4, where);
+                }
+    }
+
+    @Test
+    void worldMapsPlaceThePortalFarEnough() {
+        int size = 2 * Chunk.SIZE;
+        for (int minDistance : new int[] {1, 100, 2 * size - 2, 10 * size})
+            for (long seed = 0; seed < 50; seed++) {
+                ChunkedGrid map = ChunkedGrid.generateMap(size, size, minDistance, seed, 9);
+                int portals = 0;
+                for (int y = 0; y < size; y++)
+                    for (int x = 0; x < size; x++)
+                        if (map.getType(x, y) == CellEntityType.PORTAL) {
+                            portals++;
+                            // a distance past the diagonal puts them in opposite corners
+                            int distance = Math.abs(x - map.playerX) + Math.abs(y - map.playerY);
+                            assertTrue(distance >= Math.min(minDistance, 2 * size - 2),
+                                       "distance " + minDistance + " seed " + seed);
+                        }
+                assertEquals(1, portals);
+            }
+        // huge maps only go through the rows near the player
+        ChunkedGrid world = ChunkedGrid.generateMap(1_000_000_000, 1_000_000_000, 42L);
+        assertFalse(world.isSearchable());
+        assertThrows(IllegalStateException.class, world::paths);
+    }
+}
@@ -0,0 +1,267 @@
+package leagueofwarriors;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// a client socket with its partly read command and the reply that did not fit in the socket buffer yet
+class Connection {
+    static final int MAX_LINE = 256;
+    // replies waiting for a client that does not read them, past this it is dropped
+    static final int MAX_PENDING = 64 * 1024;
+    final SocketChannel channel;
+    final PlayerSession session;
+    final ByteBuffer input = ByteBuffer.allocate(MAX_LINE);
+    ByteBuffer pending = null;
+    public Connection(SocketChannel channel, PlayerSession session) {
+        this.channel = channel;
+        this.session = session;
+    }
+}
+
+/*
+ * One selector thread serving its share of the connections. Commands take microseconds, so they run
+ * right on the loop; a session is only ever touched by its loop, which also owns the random source
+ * and the event bus of its sessions.
+ */
+class ServerLoop implements Runnable {
+    private final GameServer server;
+    private final Selector selector;
+    private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+    private final GameRandom rng = new GameRandom(GameRandom.newSeed());
+    // nothing reads the events of the server, the bus only has to be private to the loop
+    private final CombatEventBus events = new CombatEventBus(16);
+    private final StringBuilder reply = new StringBuilder();
+    private final ByteBuffer output = ByteBuffer.allocateDirect(64 * 1024);
+    public ServerLoop(GameServer server) throws IOException {
+        this.server = server;
+        selector = Selector.open();
+    }
+    public void add(SocketChannel channel) {
+        accepted.add(channel);
+        selector.wakeup();
+    }
+    public void run() {
+        try {
+            while (true) {
+                selector.select();
+                SocketChannel channel;
+                while ((channel = accepted.poll()) != null) {
+                    try {
+                        register(channel);
+                    } catch (IOException e) {
+                        channel.close();
+                    }
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isWritable())
+                            flush(key, connection);
+                        if (key.isValid() && key.isReadable())
+                            read(key, connection);
+                    } catch (IOException e) {
+                        close(key, connection);
+                    } catch (RuntimeException e) {
+                        // only this connection goes, the other sessions of the loop keep running
+                        System.err.println("! Closing a connection after an error !");
+                        e.printStackTrace();
+                        close(key, connection);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            e.printStackTrace();
+        }
+    }
+    private void register(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        PlayerSession session = new PlayerSession(server.accounts, rng, events);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel, session));
+        server.sessions.incrementAndGet();
+    }
+    private void read(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer input = connection.input;
+        if (connection.channel.read(input) < 0) {
+            close(key, connection);
+            return;
+        }
+        // every complete line is a command, the rest waits for the next read
+        int start = 0;
+        byte[] bytes = input.array();
+        for (int i = 0; i < input.position(); i++) {
+            if (bytes[i] != '\n')
+                continue;
+            int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+            handle(connection, new String(bytes, start, end - start, StandardCharsets.UTF_8));
+            start = i + 1;
+        }
+        input.flip().position(start);
+        input.compact();
+        if (!input.hasRemaining()) {
+            input.clear();
+            reply.append("ERR Line longer than ").append(Connection.MAX_LINE).append(" bytes\n");
+        }
+        send(key, connection);
+        if (connection.session.isClosed() && connection.pending == null)
+            close(key, connection);
+    }
+    private void handle(Connection connection, String line) {
+        if (connection.session.isClosed())
+            return;
+        int mark = reply.length();
+        try {
+            if (server.stats && line.equalsIgnoreCase("STATS"))
+                reply.append("OK ").append(server.sessions.get()).append(' ').append(GameServer.usedHeap());
+            else
+                connection.session.handle(line, reply);
+        } catch (RuntimeException e) {
+            // a bug in a command, the session answers the next ones; only the command name is logged, the
+            // arguments can be passwords
+            reply.setLength(mark);
+            reply.append("ERR Internal error");
+            System.err.println("! " + line.trim().split(" ", 2)[0] + " failed !");
+            e.printStackTrace();
+        }
+        reply.append('\n');
+    }
+    /*
+    Replies of all the commands read at once go out in one write. What the socket does not take waits in
+    pending, and the connection is not read again until pending is written, so a client that sends commands
+    without reading the replies only holds the replies of one read; MAX_PENDING is a bound on top of that.
+    */
+    private void send(SelectionKey key, Connection connection) throws IOException {
+        if (reply.length() == 0)
+            return;
+        byte[] bytes = reply.toString().getBytes(StandardCharsets.UTF_8);
+        reply.setLength(0);
+        if (connection.pending != null) {
+            if (connection.pending.remaining() + bytes.length > Connection.MAX_PENDING)
+                throw new IOException("Client does not read its replies");
+            ByteBuffer pending = ByteBuffer.allocate(connection.pending.remaining() + bytes.length);
+            pending.put(connection.pending).put(bytes).flip();
+            connection.pending = pending;
+            return;
+        }
+        ByteBuffer buffer = bytes.length <= output.capacity() ? output.clear() : ByteBuffer.allocate(bytes.length);
+        buffer.put(bytes).flip();
+        connection.channel.write(buffer);
+        if (buffer.hasRemaining()) {
+            connection.pending = ByteBuffer.allocate(buffer.remaining()).put(buffer).flip();
+            key.interestOps(SelectionKey.OP_WRITE);
+        }
+    }
+    private void flush(SelectionKey key, Connection connection) throws IOException {
+        connection.channel.write(connection.pending);
+        if (connection.pending.hasRemaining())
+            return;
+        connection.pending = null;
+        key.interestOps(SelectionKey.OP_READ);
+        if (connection.session.isClosed())
+            close(key, connection);
+    }
+    private void close(SelectionKey key, Connection connection) {
+        if (!connection.channel.isOpen())
+            return;
+        key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+        }
+        server.sessions.decrementAndGet();
+    }
+}
+
+/*
+ * Headless server hosting many games at once, one PlayerSession per connection (see PlayerSession for the
+ * protocol). Connections are spread over a few selector loops instead of a thread each, which keeps a
+ * session down to its game state and a small read buffer:
+ *   java -cp server/target/server.jar leagueofwarriors.GameServer [--port 4000] [--loops n] [--cache mb] [--stats]
+ * --cache is the heap budget of the accounts kept loaded, in MB (64 by default).
+ * --stats enables the STATS command (sessions and heap used after a GC), meant for the LoadGenerator.
+ */
+public class GameServer {
+    static final int DEFAULT_PORT = 4000;
+    final AccountRepository accounts;
+    final boolean stats;
+    final AtomicInteger sessions = new AtomicInteger();
+    private final ServerLoop[] loops;
+    public GameServer(AccountRepository accounts, int nrLoops, boolean stats) throws IOException {
+        this.accounts = accounts;
+        this.stats = stats;
+        loops = new ServerLoop[nrLoops];
+        for (int i = 0; i < nrLoops; i++)
+            loops[i] = new ServerLoop(this);
+    }
+    public void serve(int port) throws IOException {
+        for (int i = 0; i < loops.length; i++) {
+            Thread thread = new Thread(loops[i], "server-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port), 1024);
+            System.out.println("Serving on port " + port + " with " + loops.length + " loops");
+            for (int next = 0; ; next = (next + 1) % loops.length)
+                loops[next].add(server.accept());
+        }
+    }
+    // the second GC also collects what the first one only made unreachable, like finalized objects
+    static long usedHeap() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int nrLoops = Runtime.getRuntime().availableProcessors();
+        long cache = AccountRepository.DEFAULT_BUDGET;
+        boolean stats = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--loops":
+                    nrLoops = Integer.parseInt(args[++i]);
+                    break;
+                case "--cache":
+                    cache = Long.parseLong(args[++i]) << 20;
+                    break;
+                case "--stats":
+                    stats = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        AccountStore accounts = JsonInput.openAccountStore();
+        ProgressLog progress = JsonInput.openProgressLog(accounts);
+        if (accounts == null || progress == null)
+            throw new IOException("Could not open the accounts");
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                try {
+                    progress.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }));
+        new GameServer(new AccountRepository(accounts, progress, cache), nrLoops, stats).serve(port);
+    }
+}
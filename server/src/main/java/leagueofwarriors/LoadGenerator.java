@@ -0,0 +1,276 @@
+package leagueofwarriors;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+// one simulated player: logs in, picks its first character and then moves and fights until the run ends
+class SimulatedClient {
+    final SocketChannel channel;
+    final ByteBuffer input = ByteBuffer.allocate(Connection.MAX_LINE);
+    SelectionKey key;
+    boolean connected, selected, inBattle;
+    long sentAt, dueAt;
+    public SimulatedClient(SocketChannel channel) {
+        this.channel = channel;
+    }
+}
+
+/*
+ * Opens many sessions against a GameServer and keeps them playing, then reports the command latency
+ * percentiles and, when the server runs with --stats, how many sessions fit in a GB of its heap:
+ *   java -cp server/target/server.jar leagueofwarriors.LoadGenerator --email <email> --password <password>
+ *        [--host localhost] [--port 4000] [--sessions 10000] [--ramp 10] [--seconds 30] [--think 100]
+ * All the sessions log into the given account; every session sends a command, waits for the reply and
+ * then for the think time (in ms) before the next one. Everything runs on one selector thread.
+ */
+public class LoadGenerator {
+    private static final String[] MOVES = {"MOVE N", "MOVE S", "MOVE E", "MOVE W"};
+    private final InetSocketAddress address;
+    private final String login;
+    private final int nrSessions;
+    private final long rampNanos, thinkNanos;
+    private final Selector selector;
+    private final SplittableRandom rng = new SplittableRandom();
+    // clients waiting for their think time, in order of the time they are due
+    private final ArrayDeque<SimulatedClient> thinking = new ArrayDeque<>();
+    private final ByteBuffer output = ByteBuffer.allocate(Connection.MAX_LINE);
+    private long[] latencies = new long[1 << 16];
+    private int nrLatencies, connected, failed, errors;
+    private boolean measuring;
+    public LoadGenerator(InetSocketAddress address, String email, String password, int nrSessions,
+                         long rampMillis, long thinkMillis) throws IOException {
+        this.address = address;
+        this.login = "LOGIN " + email + " " + password;
+        this.nrSessions = nrSessions;
+        this.rampNanos = rampMillis * 1_000_000L;
+        this.thinkNanos = thinkMillis * 1_000_000L;
+        selector = Selector.open();
+    }
+    public void run(long seconds) throws IOException {
+        long baseline = stats();
+        long start = System.nanoTime();
+        long rampEnd = start + rampNanos, end = rampEnd + seconds * 1_000_000_000L;
+        long nextReport = start + 5_000_000_000L;
+        long sessionHeap = -1;
+        int opened = 0;
+        while (true) {
+            long now = System.nanoTime();
+            if (now - end >= 0)
+                break;
+            // spread the connections over the ramp
+            int target = now - rampEnd >= 0 ? nrSessions : (int) ((double) nrSessions * (now - start) / rampNanos);
+            for (; opened < target; opened++)
+                open();
+            if (!measuring && now - rampEnd >= 0) {
+                measuring = true;
+                // every session is connected and playing, so this is the heap the sessions need
+                sessionHeap = stats();
+                nrLatencies = 0;
+            }
+            if (now - nextReport >= 0) {
+                System.out.printf("%3d s: %d sessions, %d commands measured, %d errors%n",
+                                  (now - start) / 1_000_000_000L, connected, nrLatencies, errors);
+                nextReport += 5_000_000_000L;
+            }
+            while (!thinking.isEmpty() && now - thinking.peekFirst().dueAt >= 0)
+                next(thinking.pollFirst());
+            long wait = thinking.isEmpty() ? 100 : Math.max(1, (thinking.peekFirst().dueAt - now) / 1_000_000L);
+            selector.select(Math.min(wait, 100));
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                SimulatedClient client = (SimulatedClient) key.attachment();
+                try {
+                    if (key.isConnectable())
+                        connected(client);
+                    else if (key.isReadable())
+                        read(client);
+                } catch (IOException e) {
+                    fail(client);
+                }
+            }
+        }
+        report(seconds, baseline, sessionHeap);
+    }
+    private void open() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SimulatedClient client = new SimulatedClient(channel);
+        if (channel.connect(address)) {
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            client.connected = true;
+            connected++;
+            send(client, login);
+        } else {
+            client.key = channel.register(selector, SelectionKey.OP_CONNECT, client);
+        }
+    }
+    private void connected(SimulatedClient client) throws IOException {
+        client.channel.finishConnect();
+        client.key.interestOps(SelectionKey.OP_READ);
+        client.connected = true;
+        connected++;
+        send(client, login);
+    }
+    private void read(SimulatedClient client) throws IOException {
+        ByteBuffer input = client.input;
+        if (client.channel.read(input) < 0)
+            throw new IOException("Closed by the server");
+        int start = 0;
+        byte[] bytes = input.array();
+        for (int i = 0; i < input.position(); i++) {
+            if (bytes[i] != '\n')
+                continue;
+            replied(client, new String(bytes, start, i - start, StandardCharsets.UTF_8));
+            start = i + 1;
+        }
+        input.flip().position(start);
+        input.compact();
+    }
+    private void replied(SimulatedClient client, String reply) {
+        long now = System.nanoTime();
+        if (measuring && client.selected)
+            record(now - client.sentAt);
+        if (reply.startsWith("ERR")) {
+            errors++;
+            client.selected = false;
+        } else if (reply.startsWith("OK SELECTED")) {
+            client.selected = true;
+        } else if (reply.startsWith("OK PLAYER_DIED")) {
+            client.selected = false;
+        } else {
+            client.inBattle = reply.startsWith("OK ENEMY_ENCOUNTERED") || reply.startsWith("OK ENEMY_TURN") ||
+                              reply.startsWith("OK NOT_ENOUGH_MANA");
+        }
+        client.dueAt = now + thinkNanos;
+        thinking.addLast(client);
+    }
+    private void next(SimulatedClient client) {
+        // failed while it was thinking
+        if (!client.channel.isOpen())
+            return;
+        String command;
+        if (!client.selected) {
+            client.inBattle = false;
+            command = "SELECT 0";
+        } else if (client.inBattle) {
+            command = rng.nextInt(3) == 0 ? "ABILITY 0" : "ATTACK";
+        } else {
+            command = MOVES[rng.nextInt(MOVES.length)];
+        }
+        try {
+            send(client, command);
+        } catch (IOException e) {
+            fail(client);
+        }
+    }
+    private void fail(SimulatedClient client) {
+        // counted once, however many of its reads and writes fail
+        if (!client.channel.isOpen())
+            return;
+        failed++;
+        if (client.connected) {
+            client.connected = false;
+            connected--;
+        }
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+    private void send(SimulatedClient client, String command) throws IOException {
+        output.clear();
+        output.put(command.getBytes(StandardCharsets.UTF_8)).put((byte) '\n').flip();
+        client.sentAt = System.nanoTime();
+        // a command is far below the socket buffer, so it is always written at once
+        client.channel.write(output);
+    }
+    private void record(long nanos) {
+        if (nrLatencies == latencies.length)
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        latencies[nrLatencies++] = nanos;
+    }
+    // heap used by the server after a GC, or -1 when it was not started with --stats
+    private long stats() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            channel.write(ByteBuffer.wrap("STATS\n".getBytes(StandardCharsets.UTF_8)));
+            ByteBuffer buffer = ByteBuffer.allocate(Connection.MAX_LINE);
+            while (buffer.position() == 0 || buffer.get(buffer.position() - 1) != '\n')
+                if (channel.read(buffer) < 0)
+                    return -1;
+            String[] words = new String(buffer.array(), 0, buffer.position() - 1, StandardCharsets.UTF_8).split(" ");
+            return words[0].equals("OK") ? Long.parseLong(words[2]) : -1;
+        }
+    }
+    private void report(long seconds, long baseline, long sessionHeap) {
+        Arrays.sort(latencies, 0, nrLatencies);
+        System.out.printf("%d sessions connected, %d failed, %d errors%n", connected, failed, errors);
+        System.out.printf("%d commands in %d s, %.0f commands/s%n", nrLatencies, seconds, (double) nrLatencies / seconds);
+        if (nrLatencies > 0) {
+            System.out.printf("latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n", percentile(0.5),
+                              percentile(0.99), percentile(0.999), latencies[nrLatencies - 1] / 1e6);
+        }
+        if (baseline >= 0 && sessionHeap > baseline && connected > 0) {
+            double perSession = (double) (sessionHeap - baseline) / connected;
+            System.out.printf("server heap %.1f MB for %d sessions, %.0f bytes per session, %.0f sessions per GB%n",
+                              (sessionHeap - baseline) / 1e6, connected, perSession, (1L << 30) / perSession);
+        } else {
+            System.out.println("no sessions per GB, the server needs --stats and more sessions than GC noise");
+        }
+    }
+    private double percentile(double p) {
+        return latencies[Math.min(nrLatencies - 1, (int) Math.ceil(p * nrLatencies) - 1)] / 1e6;
+    }
+    public static void main(String[] args) throws IOException {
+        String host = "localhost", email = null, password = null;
+        int port = GameServer.DEFAULT_PORT, sessions = 10_000;
+        long ramp = 10, seconds = 30, think = 100;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--email":
+                    email = args[++i];
+                    break;
+                case "--password":
+                    password = args[++i];
+                    break;
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--ramp":
+                    ramp = Long.parseLong(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(args[++i]);
+                    break;
+                case "--think":
+                    think = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (email == null || password == null)
+            throw new IllegalArgumentException("--email and --password of an account of the server are needed");
+        new LoadGenerator(new InetSocketAddress(host, port), email, password, sessions, ramp * 1000, think)
+                .run(seconds);
+    }
+}
@@ -0,0 +1,208 @@
+package leagueofwarriors;
+
+/*
+ * One client of the server: the logged in account and the game played, driven by text commands.
+ * Every command is one line and gets one reply line, OK ... or ERR <message>:
+ *   LOGIN <email> <password>   OK <number of characters>
+ *   PASSWORD <old> <new>       OK
+ *   CHARACTERS                 OK <profession> <level> <name>;...
+ *   CREATE <profession> <name> OK <number of characters>
+ *   DELETE <character>         OK <number of characters>
+ *   SELECT <character> [<world size>]
+ *                              OK SELECTED <state>, starts a new game with a new map, a world of that many
+ *                              cells a side generated as it is explored when a size is given (no TRAVEL there)
+ *   MOVE N|S|E|W               OK <TurnResult> <state>
+ *   TRAVEL PORTAL|SANCTUARY|UNEXPLORED [IGNORE|AVOID|PREFER]
+ *                              OK <TurnResult> <state>, walks until something happens (see GameSession.travel)
+ *   ATTACK                     OK <TurnResult> <state>
+ *   ABILITY <spell>            OK <TurnResult> <state>
+ *   QUIT                       OK BYE, then the connection is closed
+ * where <state> is "<hp> <mana> <x> <y> <enemy hp>", the enemy hp being -1 outside of a battle.
+ * Only used by the loop thread owning the connection, with the random source and event bus of that loop.
+ * Characters are numbered by their place in the roster, which other sessions of the account may change;
+ * progress goes to the shared AccountRepository, so sessions of the same account do not overwrite each other.
+ */
+class PlayerSession {
+    private final AccountRepository accounts;
+    private final GameRandom rng;
+    private final CombatEventBus events;
+    private int accountId = -1;
+    // the character played, as it was when it was selected
+    private CharacterRecord selected = null;
+    private GameSession game = null;
+    private boolean closed;
+    public PlayerSession(AccountRepository accounts, GameRandom rng, CombatEventBus events) {
+        this.accounts = accounts;
+        this.rng = rng;
+        this.events = events;
+    }
+    public boolean isClosed() {
+        return closed;
+    }
+    // appends the reply to the command, without the line end
+    public void handle(String line, StringBuilder reply) {
+        int mark = reply.length();
+        String[] words = line.trim().split(" +");
+        try {
+            switch (words[0].toUpperCase()) {
+                case "LOGIN":
+                    expectArguments(words, 2);
+                    login(words[1], words[2], reply);
+                    break;
+                case "PASSWORD":
+                    expectArguments(words, 2);
+                    if (!accounts.changePassword(loggedIn(), words[1], words[2]))
+                        throw new IllegalArgumentException("Wrong password");
+                    reply.append("OK");
+                    break;
+                case "CHARACTERS":
+                    listCharacters(reply);
+                    break;
+                case "CREATE":
+                    if (words.length < 3)
+                        throw new IllegalArgumentException("CREATE takes a profession and a name");
+                    accounts.addCharacter(loggedIn(), line.trim().split(" +", 3)[2], profession(words[1]));
+                    reply.append("OK ").append(accounts.roster(accountId).length);
+                    break;
+                case "DELETE":
+                    expectArguments(words, 1);
+                    accounts.removeCharacter(loggedIn(), character(parseIndex(words[1])).key);
+                    reply.append("OK ").append(accounts.roster(accountId).length);
+                    break;
+                case "SELECT":
+                    if (words.length < 2 || words.length > 3)
+                        throw new IllegalArgumentException("SELECT takes a character and an optional world size");
+                    select(parseIndex(words[1]), words.length == 3 ? parseIndex(words[2]) : 0, reply);
+                    break;
+                case "MOVE":
+                    expectArguments(words, 1);
+                    played(playing().move(direction(words[1])), reply);
+                    break;
+                case "TRAVEL":
+                    if (words.length < 2 || words.length > 3)
+                        throw new IllegalArgumentException("TRAVEL takes a target and an optional enemy policy");
+                    played(playing().travel(parse(PathTarget.class, words[1]),
+                                            words.length == 3 ? parse(EnemyPolicy.class, words[2]) : EnemyPolicy.AVOID),
+                           reply);
+                    break;
+                case "ATTACK":
+                    played(playing().attack(-1), reply);
+                    break;
+                case "ABILITY":
+                    expectArguments(words, 1);
+                    played(playing().attack(parseIndex(words[1])), reply);
+                    break;
+                case "QUIT":
+                    closed = true;
+                    reply.append("OK BYE");
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command " + words[0]);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            reply.setLength(mark);
+            reply.append("ERR ").append(e.getMessage());
+        }
+    }
+    private void login(String email, String password, StringBuilder reply) {
+        int id = accounts.find(email);
+        if (id == -1 || !accounts.checkPassword(id, password))
+            throw new IllegalArgumentException("Wrong email or password");
+        accountId = id;
+        selected = null;
+        game = null;
+        reply.append("OK ").append(accounts.roster(id).length);
+    }
+    private int loggedIn() {
+        if (accountId == -1)
+            throw new IllegalStateException("Not logged in");
+        return accountId;
+    }
+    private CharacterRecord character(int i) {
+        CharacterRecord[] roster = accounts.roster(loggedIn());
+        if (i >= roster.length)
+            throw new IllegalArgumentException("No character " + i);
+        return roster[i];
+    }
+    private void listCharacters(StringBuilder reply) {
+        CharacterRecord[] roster = accounts.roster(loggedIn());
+        reply.append("OK ");
+        for (int i = 0; i < roster.length; i++) {
+            if (i > 0)
+                reply.append(';');
+            reply.append(roster[i].profession).append(' ').append(roster[i].level).append(' ').append(roster[i].name);
+        }
+    }
+    private void select(int i, int worldSize, StringBuilder reply) {
+        CharacterRecord record = character(i);
+        Character character = record.create();
+        character.events = events;
+        game = new GameSession(character, rng.nextLong(), false, false, worldSize);
+        selected = record;
+        reply.append("OK SELECTED");
+        appendState(reply);
+    }
+    private GameSession playing() {
+        if (game == null || game.isOver())
+            throw new IllegalStateException("No character selected");
+        return game;
+    }
+    // progress is saved on the same turns as in the Swing game
+    private void played(TurnResult result, StringBuilder reply) {
+        Character character = game.character;
+        if (result == TurnResult.LEVEL_COMPLETED)
+            accounts.levelCompleted(accountId, selected.key, character.level, character.exp);
+        else if (result == TurnResult.ENEMY_KILLED)
+            accounts.recordProgress(accountId, selected.key, character.level, character.exp);
+        reply.append("OK ").append(result.name());
+        appendState(reply);
+    }
+    private void appendState(StringBuilder reply) {
+        Character character = game.character;
+        reply.append(' ').append(character.hp).append(' ').append(character.mana);
+        if (game.map != null)
+            reply.append(' ').append(game.map.playerX).append(' ').append(game.map.playerY);
+        else
+            reply.append(" -1 -1");
+        reply.append(' ').append(game.enemy != null ? game.enemy.hp : -1);
+    }
+    private static byte direction(String word) {
+        switch (word.toUpperCase()) {
+            case "N":
+                return GameSession.NORTH;
+            case "S":
+                return GameSession.SOUTH;
+            case "E":
+                return GameSession.EAST;
+            case "W":
+                return GameSession.WEST;
+            default:
+                throw new IllegalArgumentException("Unknown direction " + word);
+        }
+    }
+    private static <E extends Enum<E>> E parse(Class<E> type, String word) {
+        for (E value : type.getEnumConstants())
+            if (value.name().equalsIgnoreCase(word))
+                return value;
+        throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + word);
+    }
+    private static String profession(String word) {
+        for (String profession : new String[] {"Warrior", "Mage", "Rogue"})
+            if (profession.equalsIgnoreCase(word))
+                return profession;
+        throw new IllegalArgumentException("Unknown profession " + word);
+    }
+    private static int parseIndex(String word) {
+        try {
+            int index = Integer.parseInt(word);
+            if (index >= 0)
+                return index;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Not an index: " + word);
+    }
+    private static void expectArguments(String[] words, int count) {
+        if (words.length != count + 1)
+            throw new IllegalArgumentException(words[0].toUpperCase() + " takes " + count + " argument(s)");
+    }
+}
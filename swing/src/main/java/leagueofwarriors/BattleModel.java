@@ -0,0 +1,102 @@
+package leagueofwarriors;
+
+import javax.swing.Timer;
+import java.util.ArrayList;
+
+interface BattleListener {
+    void battleChanged(BattleModel model);
+}
+
+/*
+ * Observable view of a battle: hp, mana and immunities of the character and the enemy.
+ * Entities are plain fields changed all over the combat code, so refresh() compares them with the last
+ * published values after each action. Changes are coalesced: listeners are told at most once per frame,
+ * on the EDT, however many times refresh() was called in between.
+ */
+class BattleModel {
+    static final int FRAME_MILLIS = 16;
+    private final ArrayList<BattleListener> listeners = new ArrayList<>();
+    private final Timer frame;
+    private Character character;
+    private Enemy enemy;
+    private int playerHp, playerMana, enemyHp, enemyMana;
+    private boolean fireImmunity, iceImmunity, earthImmunity;
+    private boolean dirty;
+    public BattleModel() {
+        frame = new Timer(FRAME_MILLIS, e -> publish());
+        frame.setRepeats(false);
+    }
+    public void addListener(BattleListener listener) {
+        listeners.add(listener);
+    }
+    // a new battle is published right away so the screen never shows the previous enemy
+    public void bind(Character character, Enemy enemy) {
+        this.character = character;
+        this.enemy = enemy;
+        read();
+        frame.stop();
+        dirty = true;
+        publish();
+    }
+    public void refresh() {
+        if (character == null)
+            return;
+        if (!read())
+            return;
+        dirty = true;
+        if (!frame.isRunning())
+            frame.start();
+    }
+    // returns true if anything changed since the last read
+    private boolean read() {
+        boolean changed = playerHp != character.hp || playerMana != character.mana ||
+                          enemyHp != enemy.hp || enemyMana != enemy.mana ||
+                          fireImmunity != enemy.fireImmunity || iceImmunity != enemy.iceImmunity ||
+                          earthImmunity != enemy.earthImmunity;
+        playerHp = character.hp;
+        playerMana = character.mana;
+        enemyHp = enemy.hp;
+        enemyMana = enemy.mana;
+        fireImmunity = enemy.fireImmunity;
+        iceImmunity = enemy.iceImmunity;
+        earthImmunity = enemy.earthImmunity;
+        return changed;
+    }
+    private void publish() {
+        if (!dirty)
+            return;
+        dirty = false;
+        for (BattleListener listener : listeners)
+            listener.battleChanged(this);
+    }
+    public Character getCharacter() {
+        return character;
+    }
+    public Enemy getEnemy() {
+        return enemy;
+    }
+    public int getPlayerHp() {
+        return playerHp;
+    }
+    public int getPlayerMana() {
+        return playerMana;
+    }
+    public int getEnemyHp() {
+        return enemyHp;
+    }
+    public int getEnemyMana() {
+        return enemyMana;
+    }
+    public String getEnemyImmunities() {
+        StringBuilder sb = new StringBuilder();
+        if (fireImmunity)
+            sb.append("Fire");
+        if (iceImmunity)
+            sb.append(sb.length() > 0 ? ", " : "").append("Ice");
+        if (earthImmunity)
+            sb.append(sb.length() > 0 ? ", " : "").append("Earth");
+        if (sb.length() == 0)
+            return "Nothing";
+        return sb.toString();
+    }
+}
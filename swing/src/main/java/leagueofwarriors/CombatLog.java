@@ -0,0 +1,48 @@
+package leagueofwarriors;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import java.awt.Font;
+
+// scrolling text view of the combat events, polled from the bus on the EDT
+class CombatLog extends JScrollPane implements CombatEventListener {
+    static final int POLL_MILLIS = 50;
+    static final int MAX_LINES = 200;
+    private final CombatEventBus bus;
+    private final JTextArea text = new JTextArea(4, 0);
+    private final StringBuilder pending = new StringBuilder();
+    private long cursor;
+    public CombatLog(CombatEventBus bus) {
+        this.bus = bus;
+        cursor = bus.cursor();
+        text.setEditable(false);
+        text.setLineWrap(true);
+        text.setWrapStyleWord(true);
+        setViewportView(text);
+        new Timer(POLL_MILLIS, e -> poll()).start();
+    }
+    public void setLogFont(Font font) {
+        text.setFont(font);
+    }
+    private void poll() {
+        cursor = bus.drain(cursor, this);
+        if (pending.length() == 0)
+            return;
+        text.append(pending.toString());
+        pending.setLength(0);
+        // drop the oldest lines so long sessions do not grow the document forever
+        int extra = text.getLineCount() - MAX_LINES;
+        if (extra > 0) {
+            try {
+                text.replaceRange("", 0, text.getLineStartOffset(extra));
+            } catch (BadLocationException ignored) {
+            }
+        }
+        text.setCaretPosition(text.getDocument().getLength());
+    }
+    public void onEvent(CombatEventType type, Entity source, Spell spell, int value, int extra) {
+        if (text.getDocument().getLength() > 0 || pending.length() > 0)
+            pending.append('\n');
+        CombatEventText.append(pending, type, source, spell, value, extra);
+    }
+}
@@ -0,0 +1,261 @@
+package leagueofwarriors;
+
+import java.awt.*;
+import java.awt.event.InvocationEvent;
+import java.awt.event.KeyEvent;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Counts of durations over the last SLOTS seconds, in power of two buckets of microseconds
+ * (bucket b holds [2^b, 2^(b + 1)) us). Only written by the EDT; a dump from another thread
+ * may be off by the events recorded meanwhile.
+ */
+class RollingHistogram {
+    static final int SLOTS = 60;
+    static final int BUCKETS = 25;
+    private final long[][] counts = new long[SLOTS][BUCKETS];
+    private final long[] slotSecond = new long[SLOTS];
+    private final long[] slotMax = new long[SLOTS];
+    public void record(long nanos, long nowNanos) {
+        long second = nowNanos / 1_000_000_000L;
+        int slot = (int) Math.floorMod(second, (long) SLOTS);
+        if (slotSecond[slot] != second) {
+            Arrays.fill(counts[slot], 0);
+            slotMax[slot] = 0;
+            slotSecond[slot] = second;
+        }
+        long micros = Math.max(1, nanos / 1000);
+        counts[slot][Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros))]++;
+        slotMax[slot] = Math.max(slotMax[slot], nanos);
+    }
+    public void print(PrintStream out, String title, long nowNanos) {
+        long second = nowNanos / 1_000_000_000L;
+        long[] total = new long[BUCKETS];
+        long n = 0, max = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (second - slotSecond[slot] >= SLOTS)
+                continue;
+            for (int b = 0; b < BUCKETS; b++) {
+                total[b] += counts[slot][b];
+                n += counts[slot][b];
+            }
+            max = Math.max(max, slotMax[slot]);
+        }
+        out.printf("%s, last %d s: %d events, p50 < %s, p99 < %s, max %.1f ms%n", title, SLOTS, n,
+                   quantile(total, n, 0.5), quantile(total, n, 0.99), max / 1e6);
+        long highest = 0;
+        for (long count : total)
+            highest = Math.max(highest, count);
+        for (int b = 0; b < BUCKETS; b++) {
+            if (total[b] == 0)
+                continue;
+            int bar = (int) Math.max(1, 40 * total[b] / highest);
+            out.printf("  %9s - %-9s %8d %s%n", format(1L << b), format(1L << (b + 1)), total[b], "#".repeat(bar));
+        }
+    }
+    // upper bound of the bucket holding the quantile
+    private static String quantile(long[] total, long n, double q) {
+        long rank = (long) Math.ceil(q * n), seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += total[b];
+            if (seen >= rank && seen > 0)
+                return format(1L << (b + 1));
+        }
+        return "-";
+    }
+    private static String format(long micros) {
+        if (micros < 1000)
+            return micros + " us";
+        if (micros < 1_000_000)
+            return micros / 1000 + " ms";
+        return micros / 1_000_000 + " s";
+    }
+}
+
+/*
+ * Replaces the system event queue to time every event dispatched on the EDT:
+ * - dispatch latency, from a probe posted every PROBE_MILLIS until it runs
+ * - handling time of every event, and per handler stats of the events above the threshold
+ * A watchdog thread takes a stack sample of the EDT once an event runs longer than the threshold
+ * (-Dedt.threshold, in ms) and prints it, so the slow handler (Game.movePlayer, Game.showBattle...)
+ * is named even while it is still blocking. F12 dumps the histograms and the slow handlers.
+ * Events that open a modal dialog are left out, their time is spent waiting for the user.
+ */
+class EdtWatchdog extends EventQueue {
+    static final long THRESHOLD_MILLIS = Long.getLong("edt.threshold", 50);
+    static final long PROBE_MILLIS = 100;
+    // frames of a stack sample that are printed
+    static final int SAMPLE_DEPTH = 20;
+    private static EdtWatchdog instance = null;
+    private final long thresholdNanos = THRESHOLD_MILLIS * 1_000_000L;
+    private final RollingHistogram latency = new RollingHistogram();
+    private final RollingHistogram handling = new RollingHistogram();
+    // handler -> {slow events, total nanos, max nanos}, EDT only
+    private final Map<String, long[]> slowHandlers = new HashMap<>();
+    private volatile Thread edt;
+    // start of the event being watched, 0 while idle or waiting in a modal loop
+    private volatile long watchedStart;
+    private volatile long watchedSequence;
+    private volatile StackTraceElement[] sample;
+    private volatile long sampleSequence = -1;
+    private long sequence;
+    private int depth;
+    private boolean openedLoop;
+    private EdtWatchdog() {
+    }
+    public static synchronized EdtWatchdog install() {
+        if (instance != null)
+            return instance;
+        instance = new EdtWatchdog();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(instance);
+        KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e -> {
+            if (e.getID() == KeyEvent.KEY_PRESSED && e.getKeyCode() == KeyEvent.VK_F12) {
+                instance.dump(System.err);
+                return true;
+            }
+            return false;
+        });
+        Thread watchdog = new Thread(instance::watch, "EDT watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+        return instance;
+    }
+    protected void dispatchEvent(AWTEvent event) {
+        if (edt == null)
+            edt = Thread.currentThread();
+        // a dispatch inside another one is a modal loop opened by the outer event
+        boolean parentOpened = depth > 0;
+        openedLoop = false;
+        depth++;
+        long seq = ++sequence;
+        long start = System.nanoTime();
+        watchedSequence = seq;
+        watchedStart = start;
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long end = System.nanoTime();
+            watchedStart = 0;
+            depth--;
+            boolean opened = openedLoop;
+            openedLoop = parentOpened;
+            if (!opened)
+                record(event, seq, end - start, end);
+        }
+    }
+    private void record(AWTEvent event, long seq, long nanos, long now) {
+        handling.record(nanos, now);
+        if (nanos < thresholdNanos)
+            return;
+        String handler = sampleSequence == seq ? handlerOf(sample) : "unsampled " + describe(event);
+        long[] stats = slowHandlers.computeIfAbsent(handler, k -> new long[3]);
+        stats[0]++;
+        stats[1] += nanos;
+        stats[2] = Math.max(stats[2], nanos);
+    }
+    private void watch() {
+        long pollMillis = Math.max(1, THRESHOLD_MILLIS / 4);
+        long nextProbe = 0, skipped = -1;
+        while (true) {
+            try {
+                Thread.sleep(pollMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            // probes only while a window is shown, otherwise they would keep AWT from shutting down
+            if (now - nextProbe >= 0 && hasWindow()) {
+                long posted = now;
+                invokeLater(() -> latency.record(System.nanoTime() - posted, System.nanoTime()));
+                nextProbe = now + PROBE_MILLIS * 1_000_000L;
+            }
+            long seq = watchedSequence, start = watchedStart;
+            Thread thread = edt;
+            if (start == 0 || thread == null || now - start < thresholdNanos || sampleSequence == seq ||
+                skipped == seq)
+                continue;
+            StackTraceElement[] stack = thread.getStackTrace();
+            // the event may have finished while sampling, or the EDT is idle inside a modal dialog
+            if (watchedSequence != seq || watchedStart != start)
+                continue;
+            if (isWaitingForEvent(stack)) {
+                skipped = seq;
+                continue;
+            }
+            sample = stack;
+            sampleSequence = seq;
+            report(System.err, stack, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+    private static boolean hasWindow() {
+        for (Window window : Window.getWindows())
+            if (window.isDisplayable())
+                return true;
+        return false;
+    }
+    private static boolean isWaitingForEvent(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (className.startsWith("java.lang.") || className.startsWith("jdk.internal.") ||
+                className.startsWith("java.util.concurrent."))
+                continue;
+            return className.equals("java.awt.EventQueue") && frame.getMethodName().equals("getNextEvent");
+        }
+        return false;
+    }
+    private static void report(PrintStream out, StackTraceElement[] stack, long millis) {
+        StringBuilder report = new StringBuilder();
+        report.append("EDT blocked for ").append(millis).append(" ms in ").append(handlerOf(stack)).append('\n');
+        for (int i = 0; i < stack.length && i < SAMPLE_DEPTH; i++)
+            report.append("\tat ").append(stack[i]).append('\n');
+        if (stack.length > SAMPLE_DEPTH)
+            report.append("\t... ").append(stack.length - SAMPLE_DEPTH).append(" more\n");
+        out.print(report);
+    }
+    /*
+    The outermost game method that is not a lambda or an anonymous listener, i.e. the handler called by
+    the listener (Game.movePlayer rather than Game$5.actionPerformed), and the innermost game method when
+    it is another one (Game.movePlayer > Grid.generateMap).
+    */
+    static String handlerOf(StackTraceElement[] stack) {
+        String outer = null, inner = null;
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!className.startsWith("leagueofwarriors.") || frame.getClassName().equals(EdtWatchdog.class.getName()))
+                continue;
+            String name = className.substring("leagueofwarriors.".length()) + "." + frame.getMethodName();
+            if (inner == null)
+                inner = name;
+            if (className.indexOf('$') < 0 && !frame.getMethodName().startsWith("lambda$"))
+                outer = name;
+        }
+        if (outer == null && inner == null)
+            return stack.length > 0 ? stack[0].getClassName() + "." + stack[0].getMethodName() : "unknown";
+        if (outer == null || outer.equals(inner))
+            return inner;
+        return outer + " > " + inner;
+    }
+    private static String describe(AWTEvent event) {
+        if (event instanceof InvocationEvent)
+            return "InvocationEvent";
+        return event.getClass().getSimpleName() + " on " + event.getSource().getClass().getSimpleName();
+    }
+    public void dump(PrintStream out) {
+        long now = System.nanoTime();
+        latency.print(out, "EDT dispatch latency", now);
+        handling.print(out, "EDT event handling time", now);
+        List<Map.Entry<String, long[]>> handlers = new ArrayList<>(slowHandlers.entrySet());
+        handlers.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+        out.printf("Events over %d ms, since start:%n", THRESHOLD_MILLIS);
+        for (Map.Entry<String, long[]> handler : handlers) {
+            long[] stats = handler.getValue();
+            out.printf("  %6d events, %8.1f ms total, %7.1f ms max  %s%n", stats[0], stats[1] / 1e6, stats[2] / 1e6,
+                       handler.getKey());
+        }
+    }
+}
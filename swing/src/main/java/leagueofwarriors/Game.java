@@ -0,0 +1,595 @@
+package leagueofwarriors;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+class InvalidCommandException extends Exception {
+    public InvalidCommandException(String message) {
+        super(message);
+    }
+}
+
+class LevelCompletedException extends Exception {
+    public LevelCompletedException(String message) {
+        super(message);
+    }
+}
+
+class PlayerDiedException extends Exception {
+    public PlayerDiedException(String message) {
+        super(message);
+    }
+}
+
+class LeaveGameException extends Exception {
+    public LeaveGameException(String message) {
+        super(message);
+    }
+}
+
+class Game extends JFrame {
+    private static Game instance = null;
+    private final AccountStore accounts;
+    private final ProgressLog progress;
+    // every roll of the session comes from here, so a session is reproducible from its seed
+    private final GameRandom rng;
+    private final ImageCache images;
+    // sizes the images are shown at, when the screen is tall enough
+    private static final int PORTRAIT_SIZE = 640, ABILITY_SIZE = 400;
+    private Account loggedInAccount = null;
+    private int loggedInAccountId = -1;
+    // rules, rolls and recording of the character currently played
+    private GameSession session = null;
+    private static final String recordingsPath = "./sessions";
+    // how far around the player the map is shown, -Dsight.radius=<cells>
+    private static final int SIGHT_RADIUS = Integer.getInteger("sight.radius", 0);
+    private JPanel characterWindow = null;
+    private MapView mapView = null;
+    private JTextArea statsText;
+    // retained battle and abilities screens
+    private BattleModel battleModel = null;
+    private JLabel battlePlayerImage, battleEnemyImage, attackImage;
+    private JTextArea battlePlayerStats, battleEnemyStats, attackStats = null;
+    private final JSplitPane[] spellCards = new JSplitPane[3];
+    private final JLabel[] spellImages = new JLabel[3];
+    private final JTextArea[] spellStats = new JTextArea[3];
+    private final Spell[] shownSpells = new Spell[3];
+    private final JPanel mainPanel, mapWindow, battleWindow, abilitiesWindow, gameOverWindow;
+    private boolean isTestMap;
+    private Game() {
+        // general settings
+        super("League of Warriors");
+        // reports events that keep the EDT busy for too long, F12 dumps the stats
+        EdtWatchdog.install();
+        // start decoding the images while the accounts are opened
+        images = ImageCache.getInstance(new int[] {ImageCache.fitToScreen(PORTRAIT_SIZE, 900, null),
+                                                   ImageCache.fitToScreen(PORTRAIT_SIZE, 1000, null)},
+                                        new int[] {ImageCache.fitToScreen(ABILITY_SIZE, 700, null)});
+        accounts = JsonInput.openAccountStore();
+        progress = JsonInput.openProgressLog(accounts);
+        // flush progress that is still waiting for its group commit
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                saveRecording();
+                try {
+                    progress.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }));
+        rng = new GameRandom(Long.getLong("seed", GameRandom.newSeed()));
+        // change JOptionPane font size
+        UIManager.put("OptionPane.messageFont", new Font("Arial", Font.PLAIN, 30));
+        UIManager.put("OptionPane.buttonFont", new Font("Arial", Font.PLAIN, 30));
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        mainPanel = new JPanel(new CardLayout());
+        // create the authentication window
+        JPanel authWindow = new JPanel(new GridBagLayout());
+        JPanel authPanel = new JPanel();
+        authPanel.setLayout(new GridLayout(4, 1, 0, 20));
+        JPanel emailPanel = new JPanel(new GridLayout(2, 1));
+        JLabel emailLabel = new JLabel("Email: ");
+        emailLabel.setFont(new Font("Arial", Font.BOLD, 30));
+        JTextField emailField = new JTextField(15);
+        emailField.setFont(new Font("Arial", Font.PLAIN, 30));
+        emailPanel.add(emailLabel);
+        emailPanel.add(emailField);
+        JPanel passwordPanel = new JPanel(new GridLayout(2, 1));
+        JLabel passwordLabel = new JLabel("Password: ");
+        passwordLabel.setFont(new Font("Arial", Font.BOLD, 30));
+        JPasswordField passwordField = new JPasswordField(15);
+        passwordField.setFont(new Font("Arial", Font.PLAIN, 30));
+        passwordPanel.add(passwordLabel);
+        passwordPanel.add(passwordField);
+        JButton loginButton = new JButton("Login");
+        loginButton.setFont(new Font("Arial", Font.BOLD, 30));
+        loginButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                tryLogin(emailField.getText(), passwordField.getText());
+                if (loggedInAccount != null) {
+                    showCharacters();
+                }
+            }
+        });
+        authPanel.add(emailPanel);
+        authPanel.add(passwordPanel);
+        authPanel.add(loginButton);
+        authWindow.add(authPanel);
+        mainPanel.add(authWindow, "AUTH");
+        // create map window
+        mapWindow = new JPanel(new GridBagLayout());
+        mainPanel.add(mapWindow, "MAP");
+        // create battle window
+        battleWindow = new JPanel(new GridBagLayout());
+        mainPanel.add(battleWindow, "BATTLE");
+        // create abilities window
+        abilitiesWindow = new JPanel(new GridBagLayout());
+        mainPanel.add(abilitiesWindow, "ABILITIES");
+        // create game over window
+        gameOverWindow = new JPanel(new GridBagLayout());
+        mainPanel.add(gameOverWindow, "GAME OVER");
+        // add main panel to JFrame and make it visible
+        add(mainPanel);
+        // what happens in fights is written here instead of in dialogs
+        CombatLog combatLog = new CombatLog(CombatEventBus.getDefault());
+        combatLog.setLogFont(new Font("Arial", Font.PLAIN, 20));
+        combatLog.setPreferredSize(new Dimension(0, 150));
+        add(combatLog, BorderLayout.SOUTH);
+        setVisible(true);
+    }
+    public static Game getInstance() {
+        if (instance == null) {
+            instance = new Game();
+        }
+        return instance;
+    }
+    private void showLogin() {
+        ((CardLayout) mainPanel.getLayout()).show(mainPanel, "AUTH");
+        pack();
+        setSize(800, 600);
+        setLocationRelativeTo(null);
+    }
+    private void tryLogin(String email, String password) {
+        if (email == null || password == null)
+            return;
+        int id = accounts.find(email);
+        if (id == -1) {
+            JOptionPane.showMessageDialog(this, "Email not found!");
+            return;
+        }
+        if (!accounts.checkPassword(id, password)) {
+            JOptionPane.showMessageDialog(this, "Password does not match!");
+            return;
+        }
+        // the account and its characters are only built now
+        Account account = accounts.load(id);
+        loggedInAccountId = id;
+        loggedInAccount = account;
+    }
+    private void showCharacters() {
+        if (loggedInAccount == null)
+            return;
+        // only create once since logout and login with different account is not possible without relaunch
+        if (characterWindow == null) {
+            characterWindow = new JPanel(new GridBagLayout());
+            JPanel characterPanel = new JPanel();
+            characterPanel.setLayout(new BoxLayout(characterPanel, BoxLayout.Y_AXIS));
+            JLabel characterLabel = new JLabel("Choose a character:");
+            characterLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            characterLabel.setFont(new Font("Arial", Font.BOLD, 30));
+            JList<Object> characterList = new JList<>(loggedInAccount.characters.toArray());
+            characterList.setFont(new Font("Arial", Font.PLAIN, 30));
+            characterList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            characterList.setBackground(getBackground());
+            JButton selectCharacterButton = new JButton("Select Character");
+            selectCharacterButton.setFont(new Font("Arial", Font.BOLD, 30));
+            selectCharacterButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+            selectCharacterButton.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    Character selectedCharacter = (Character) characterList.getSelectedValue();
+                    if (selectedCharacter != null) {
+                        session = new GameSession(selectedCharacter, rng.nextLong(), isTestMap, true);
+                        session.setSightRadius(SIGHT_RADIUS);
+                        showMap();
+                    } else {
+                        JOptionPane.showMessageDialog(characterWindow, "No character selected!");
+                    }
+                }
+            });
+            characterPanel.add(characterLabel);
+            // used for spacing the items
+            characterPanel.add(Box.createRigidArea(new Dimension(0, 10)));
+            characterPanel.add(characterList);
+            characterPanel.add(Box.createRigidArea(new Dimension(0, 15)));
+            characterPanel.add(selectCharacterButton);
+            characterWindow.add(characterPanel);
+            mainPanel.add(characterWindow, "CHARACTER");
+        }
+        ((CardLayout) mainPanel.getLayout()).show(mainPanel, "CHARACTER");
+        mainPanel.setPreferredSize(new Dimension(800, 600));
+        pack();
+        setLocationRelativeTo(null);
+    }
+    private void buildMapWindow() {
+        JSplitPane mapSplitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
+        // stop resizing
+        mapSplitPane.setEnabled(false);
+        JSplitPane infoSplitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
+        infoSplitPane.setEnabled(false);
+        JPanel buttonPanel = new JPanel(new GridLayout(3, 3));
+        JButton northButton = new JButton("NORTH");
+        JButton southButton = new JButton("SOUTH");
+        JButton eastButton = new JButton("EAST");
+        JButton westButton = new JButton("WEST");
+        northButton.setFont(new Font("Arial", Font.BOLD, 30));
+        southButton.setFont(new Font("Arial", Font.BOLD, 30));
+        eastButton.setFont(new Font("Arial", Font.BOLD, 30));
+        westButton.setFont(new Font("Arial", Font.BOLD, 30));
+        northButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                movePlayer(GameSession.NORTH);
+            }
+        });
+        southButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                movePlayer(GameSession.SOUTH);
+            }
+        });
+        eastButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                movePlayer(GameSession.EAST);
+            }
+        });
+        westButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                movePlayer(GameSession.WEST);
+            }
+        });
+        // walk on until something happens, going around the enemies when it is not too far
+        JButton exploreButton = new JButton("EXPLORE");
+        JButton portalButton = new JButton("PORTAL");
+        exploreButton.setFont(new Font("Arial", Font.BOLD, 20));
+        portalButton.setFont(new Font("Arial", Font.BOLD, 20));
+        exploreButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                travel(PathTarget.UNEXPLORED);
+            }
+        });
+        portalButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                travel(PathTarget.PORTAL);
+            }
+        });
+        // add spacing for buttons
+        buttonPanel.add(exploreButton);
+        buttonPanel.add(northButton);
+        buttonPanel.add(portalButton);
+        buttonPanel.add(westButton);
+        buttonPanel.add(Box.createRigidArea(null));
+        buttonPanel.add(eastButton);
+        buttonPanel.add(Box.createRigidArea(null));
+        buttonPanel.add(southButton);
+        buttonPanel.add(Box.createRigidArea(null));
+        // for vertical centering of JTextArea
+        JPanel statsPanel = new JPanel(new GridBagLayout());
+        statsText = new JTextArea(4, 0);
+        statsText.setFont(new Font("Arial", Font.PLAIN, 30));
+        statsText.setEditable(false);
+        statsText.setBackground(getBackground());
+        statsPanel.add(statsText);
+        infoSplitPane.setTopComponent(buttonPanel);
+        infoSplitPane.setBottomComponent(statsPanel);
+        JPanel mapPanel = new JPanel(new GridBagLayout());
+        mapView = new MapView();
+        mapPanel.add(mapView);
+        mapSplitPane.setLeftComponent(infoSplitPane);
+        mapSplitPane.setRightComponent(mapPanel);
+        mapWindow.add(mapSplitPane);
+    }
+    private void updateStats() {
+        Character character = session.character;
+        statsText.setText("Level: " + character.level + "\n" +
+                          "Experience: " + character.exp + " / " + Character.expMilestones[character.level] + "\n" +
+                          "Health: " + character.hp + "\n" +
+                          "Mana: " + character.mana);
+    }
+    // the map window is only built once, moving around just repaints the changed cells
+    private void showMap() {
+        if (mapView == null)
+            buildMapWindow();
+        if (mapView.getMap() != session.map)
+            mapView.setMap(session.map);
+        updateStats();
+        ((CardLayout) mainPanel.getLayout()).show(mainPanel, "MAP");
+        mainPanel.setPreferredSize(new Dimension(1200, 900));
+        mainPanel.revalidate();
+        pack();
+        setLocationRelativeTo(null);
+    }
+    private void movePlayer(byte direction) {
+        moved(session.move(direction));
+    }
+    private void travel(PathTarget target) {
+        TurnResult result = session.travel(target, EnemyPolicy.AVOID);
+        // every cell of the route changed, not only the two around the last step
+        mapView.repaint();
+        moved(result);
+    }
+    private void moved(TurnResult result) {
+        switch (result) {
+            case IMPOSSIBLE_MOVE:
+                JOptionPane.showMessageDialog(this, session.lastMessage);
+                break;
+            case LEVEL_COMPLETED:
+                Character character = session.character;
+                StringBuilder sb = new StringBuilder();
+                sb.append("You have completed level " + session.nrLevelsCompleted + "!");
+                if (session.leveledUp)
+                    sb.append("\nLeveled up to level " + character.level + "!");
+                sb.append("\nGained " + session.expGained + " experience with a total of " +
+                          character.exp + " exp out of " + Character.expMilestones[character.level] +
+                          " exp needed for level up.");
+                JOptionPane.showMessageDialog(this, sb.toString());
+                // increment number of games played
+                loggedInAccount.gamesPlayed++;
+                progress.logAccount(loggedInAccountId, loggedInAccount, character);
+                // the session already moved on to a new map
+                showMap();
+                break;
+            case ENEMY_ENCOUNTERED:
+                mapView.playerMoved();
+                updateStats();
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        showBattle(true);
+                    }
+                });
+                break;
+            default:
+                mapView.playerMoved();
+                updateStats();
+                break;
+        }
+    }
+    private JSplitPane createStatsCard(JLabel image, JTextArea stats, JButton button) {
+        JSplitPane card = new JSplitPane();
+        card.setEnabled(false);
+        card.setOrientation(JSplitPane.VERTICAL_SPLIT);
+        stats.setFont(new Font("Arial", Font.PLAIN, 30));
+        stats.setEditable(false);
+        stats.setBackground(getBackground());
+        JPanel statsCenter = new JPanel(new GridBagLayout());
+        statsCenter.add(stats);
+        if (button != null) {
+            button.setFont(new Font("Arial", Font.PLAIN, 30));
+            JPanel statsPanel = new JPanel(new GridLayout(1, 2));
+            statsPanel.add(statsCenter);
+            statsPanel.add(button);
+            card.setBottomComponent(statsPanel);
+        } else {
+            card.setBottomComponent(statsCenter);
+        }
+        card.setTopComponent(image);
+        return card;
+    }
+    // built once, afterwards only the texts and images change
+    private void buildBattleWindow() {
+        battleModel = new BattleModel();
+        battlePlayerImage = new JLabel();
+        battlePlayerStats = new JTextArea();
+        JButton attackButton = new JButton("Attack");
+        attackButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                showAbilities();
+            }
+        });
+        battleEnemyImage = new JLabel();
+        battleEnemyStats = new JTextArea();
+        JSplitPane battleSplitPane = new JSplitPane();
+        battleSplitPane.setEnabled(false);
+        battleSplitPane.setOrientation(JSplitPane.HORIZONTAL_SPLIT);
+        battleSplitPane.setLeftComponent(createStatsCard(battlePlayerImage, battlePlayerStats, attackButton));
+        battleSplitPane.setRightComponent(createStatsCard(battleEnemyImage, battleEnemyStats, null));
+        battleWindow.add(battleSplitPane);
+        battleModel.addListener(new BattleListener() {
+            public void battleChanged(BattleModel model) {
+                battlePlayerStats.setText("Health: " + model.getPlayerHp() + "\n" +
+                                          "Mana: " + model.getPlayerMana());
+                battleEnemyStats.setText("Health: " + model.getEnemyHp() + "\n" +
+                                         "Mana: " + model.getEnemyMana() + "\n" +
+                                         "Immunities: " + model.getEnemyImmunities());
+                // the mana shown on the abilities screen
+                if (abilitiesWindow.isShowing())
+                    updateAbilities();
+            }
+        });
+    }
+    // enemies are pooled, so a new battle may well be against the same Enemy object as the last one
+    private void showBattle(boolean newBattle) {
+        if (battleModel == null)
+            buildBattleWindow();
+        Character character = session.character;
+        if (newBattle || battleModel.getEnemy() != session.enemy || battleModel.getCharacter() != character) {
+            int portraitSize = ImageCache.fitToScreen(PORTRAIT_SIZE, 900, this);
+            battlePlayerImage.setIcon(images.getIcon(character.getClass().getSimpleName().toLowerCase(),
+                                                     portraitSize, this));
+            battleEnemyImage.setIcon(images.getIcon("enemy", portraitSize, this));
+            battleModel.bind(character, session.enemy);
+        } else {
+            battleModel.refresh();
+        }
+        if (!battleWindow.isShowing()) {
+            ((CardLayout) mainPanel.getLayout()).show(mainPanel, "BATTLE");
+            mainPanel.setPreferredSize(new Dimension(1400, 900));
+            pack();
+            setLocationRelativeTo(null);
+        }
+    }
+    // one card per possible ability (at most 3) and one for the basic attack, hidden when not needed
+    private void buildAbilitiesWindow() {
+        JPanel abilitiesRow = new JPanel();
+        abilitiesRow.setLayout(new BoxLayout(abilitiesRow, BoxLayout.X_AXIS));
+        for (int i = 0; i < spellCards.length; i++) {
+            final int slot = i;
+            spellImages[i] = new JLabel();
+            spellStats[i] = new JTextArea();
+            JButton chooseButton = new JButton("Choose");
+            chooseButton.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    attack(slot);
+                }
+            });
+            spellCards[i] = createStatsCard(spellImages[i], spellStats[i], chooseButton);
+            abilitiesRow.add(spellCards[i]);
+        }
+        attackImage = new JLabel();
+        attackStats = new JTextArea();
+        JButton chooseButton = new JButton("Choose");
+        chooseButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                attack(-1);
+            }
+        });
+        abilitiesRow.add(createStatsCard(attackImage, attackStats, chooseButton));
+        abilitiesWindow.add(abilitiesRow);
+    }
+    private void showAbilities() {
+        if (attackStats == null)
+            buildAbilitiesWindow();
+        // needed for formatting
+        Character character = session.character;
+        int nrAbilities = Math.min(character.abilities.size(), spellCards.length);
+        // save damage of getDamage() so that damage when showing the abilities is the same as when using it
+        // this solves the problem that calling the getDamage() could return double damage when showing
+        // but not when using it (further down)
+        session.getBaseDamage();
+        int abilitySize = ImageCache.fitToScreen(ABILITY_SIZE, 700, this);
+        for (int i = 0; i < spellCards.length; i++) {
+            shownSpells[i] = i < nrAbilities ? character.abilities.get(i) : null;
+            spellCards[i].setVisible(shownSpells[i] != null);
+            if (shownSpells[i] != null)
+                spellImages[i].setIcon(images.getIcon(shownSpells[i].getClass().getSimpleName(), abilitySize, this));
+        }
+        attackImage.setIcon(images.getIcon("basicAttack", abilitySize, this));
+        updateAbilities();
+        ((CardLayout) mainPanel.getLayout()).show(mainPanel, "ABILITIES");
+        // calculate size based on how many abilities are showing up
+        mainPanel.setPreferredSize(new Dimension(400 * nrAbilities + 600, 700));
+        pack();
+        setLocationRelativeTo(null);
+    }
+    private void updateAbilities() {
+        int baseDamage = session.getBaseDamage();
+        for (int i = 0; i < spellCards.length; i++) {
+            Spell spell = shownSpells[i];
+            if (spell == null)
+                continue;
+            spellStats[i].setText("Type: " + spell.getClass().getSimpleName().split("Spell")[0] + "\n" +
+                                  "Mana Cost: " + spell.manaCost + "\n" +
+                                  "Damage: " + (baseDamage + session.character.getSpellDamage(spell, session.enemy)));
+        }
+        attackStats.setText("Type: Basic Attack\n" +
+                            "Mana Cost: 0\n" +
+                            "Damage: " + baseDamage);
+    }
+    // spell is the index of the ability or -1 for the basic attack
+    private void attack(int spell) {
+        switch (session.attack(spell)) {
+            case NOT_ENOUGH_MANA:
+                JOptionPane.showMessageDialog(abilitiesWindow, session.character.name +
+                        " does not have enough mana to use this ability.");
+                break;
+            case ENEMY_KILLED:
+                Character character = session.character;
+                StringBuilder sb = new StringBuilder();
+                sb.append("Congratulations! " + character.name + " has killed the enemy and has doubled the hp and mana to " +
+                          character.hp + " hp and " + character.mana + " mana.");
+                if (session.leveledUp)
+                    sb.append("\nLeveled up to level " + character.level + "!");
+                progress.logAccount(loggedInAccountId, loggedInAccount, character);
+                JOptionPane.showMessageDialog(this, sb.toString());
+                showMap();
+                break;
+            case PLAYER_DIED:
+                showGameOver();
+                break;
+            default:
+                showBattle(false);
+                break;
+        }
+    }
+    // kept for every session, small enough to be replayed with SessionReplay when a problem is reported
+    private void saveRecording() {
+        if (session == null || session.getRecording().size() == 0)
+            return;
+        SessionRecording recording = session.getRecording();
+        try {
+            Files.createDirectories(Paths.get(recordingsPath));
+            recording.write(Paths.get(recordingsPath, Long.toHexString(recording.seed) + ".rec"));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    private void showGameOver() {
+        // show game over window
+        JSplitPane gameOverSplitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT);
+        gameOverSplitPane.setEnabled(false);
+        JPanel gameOverStatsPanel = new JPanel(new GridLayout(1, 2));
+        JPanel gameOverStatsCenter = new JPanel(new GridBagLayout());
+        JPanel gameOverButtonCenter = new JPanel(new GridBagLayout());
+        JTextArea gameOverStats = new JTextArea();
+        gameOverStats.setFont(new Font("Arial", Font.PLAIN, 30));
+        gameOverStats.setEditable(false);
+        gameOverStats.setBackground(getBackground());
+        Character character = session.character;
+        gameOverStats.append("Name: " + character.name + "\n");
+        gameOverStats.append("Role: " + character.getClass().getSimpleName() + "\n");
+        gameOverStats.append("Level: " + character.level + "\n");
+        gameOverStats.append("Experience: " + character.exp + " / " + Character.expMilestones[character.level] + "\n");
+        gameOverStats.append("Maps completed: " + session.nrLevelsCompleted + "\n");
+        gameOverStats.append("Enemies killed: " + session.nrEnemiesKilled);
+        gameOverStatsCenter.add(gameOverStats);
+        JButton backButton = new JButton("<html>Return to<br>Character Selection</html>");
+        backButton.setFont(new Font("Arial", Font.PLAIN, 30));
+        backButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                showCharacters();
+            }
+        });
+        gameOverButtonCenter.add(backButton);
+        gameOverStatsPanel.add(gameOverStatsCenter);
+        gameOverStatsPanel.add(gameOverButtonCenter);
+        JLabel playerImage = new JLabel(images.getIcon(character.getClass().getSimpleName().toLowerCase(),
+                                                       ImageCache.fitToScreen(PORTRAIT_SIZE, 1000, this), this));
+        gameOverSplitPane.setTopComponent(playerImage);
+        gameOverSplitPane.setBottomComponent(gameOverStatsPanel);
+        gameOverWindow.add(gameOverSplitPane);
+        ((CardLayout) mainPanel.getLayout()).show(mainPanel, "GAME OVER");
+        mainPanel.setPreferredSize(new Dimension(900, 1000));
+        mainPanel.revalidate();
+        mainPanel.repaint();
+        pack();
+        setLocationRelativeTo(null);
+        // the session already restored hp and mana, the next character chosen starts a new one
+        saveRecording();
+        session = null;
+    }
+    private void run(boolean isTestMap) {
+        this.isTestMap = isTestMap;
+        showLogin();
+//        loggedInAccount = accounts.get(0);
+//        showCharacters();
+    }
+    public void run() {
+        this.run(false);
+    }
+    public void runWithTestMap() {
+        this.run(true);
+    }
+}
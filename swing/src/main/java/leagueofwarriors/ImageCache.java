@@ -0,0 +1,173 @@
+package leagueofwarriors;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// an already scaled image drawn at a logical size, so on high-DPI screens it keeps all of its pixels
+class ScaledIcon implements Icon {
+    private final Image image;
+    private final int width, height;
+    public ScaledIcon(Image image, int width, int height) {
+        this.image = image;
+        this.width = width;
+        this.height = height;
+    }
+    public void paintIcon(Component c, Graphics g, int x, int y) {
+        g.drawImage(image, x, y, width, height, null);
+    }
+    public int getIconWidth() {
+        return width;
+    }
+    public int getIconHeight() {
+        return height;
+    }
+}
+
+/*
+ * Decodes every image of the game once, in parallel on background threads, as soon as the game starts.
+ * Images are read from the classpath (images/ at the root of the resources, inside the jar when packaged).
+ * Scaled copies are made in the format of the screen and kept, so showing a screen again costs no disk read, decode or scaling.
+ * The sizes the game shows portraits and abilities at are scaled on the same threads right after decoding, for the scale
+ * of the default screen, so the event thread only scales when the window is moved to a screen with another scale.
+ * When the screen needs more pixels than the normal image has (high DPI), the Big variant is used.
+ */
+class ImageCache {
+    static final String[] NAMES = {"warrior", "mage", "rogue", "enemy", "basicAttack", "basicAttackBig",
+                                   "IceSpell", "IceSpellBig", "FireSpell", "FireSpellBig",
+                                   "EarthSpell", "EarthSpellBig"};
+    // the images shown at portrait and at ability sizes, the Big variants are picked when scaling
+    static final String[] PORTRAITS = {"warrior", "mage", "rogue", "enemy"};
+    static final String[] ABILITIES = {"basicAttack", "IceSpell", "FireSpell", "EarthSpell"};
+    private static final String DIRECTORY = "/images/";
+    private static ImageCache instance = null;
+    private final HashMap<String, CompletableFuture<BufferedImage>> originals = new HashMap<>();
+    // keyed by name and size in device pixels
+    private final ConcurrentHashMap<String, CompletableFuture<Image>> scaled = new ConcurrentHashMap<>();
+    private ImageCache(int[] portraitSizes, int[] abilitySizes) {
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), NAMES.length));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (String name : NAMES)
+            originals.put(name, CompletableFuture.supplyAsync(() -> load(name), pool));
+        // queued after every decode, so a thread only starts scaling once all the decodes it may wait for are running
+        double scale = screenScale(null);
+        for (String name : PORTRAITS)
+            for (int size : portraitSizes)
+                prescale(name, devicePixels(size, scale), pool);
+        for (String name : ABILITIES)
+            for (int size : abilitySizes)
+                prescale(name, devicePixels(size, scale), pool);
+        pool.shutdown();
+    }
+    /*
+    Starts decoding on first call, later calls get the same cache.
+    The sizes are in logical pixels, the ones the portraits and abilities are shown at.
+    */
+    public static synchronized ImageCache getInstance(int[] portraitSizes, int[] abilitySizes) {
+        if (instance == null)
+            instance = new ImageCache(portraitSizes, abilitySizes);
+        return instance;
+    }
+    private void prescale(String name, int pixels, ExecutorService pool) {
+        scaled.computeIfAbsent(name + "@" + pixels,
+                               key -> CompletableFuture.supplyAsync(() -> scale(name, pixels), pool));
+    }
+    private static BufferedImage load(String name) {
+        String file = name + ".jpeg";
+        try {
+            URL url = ImageCache.class.getResource(DIRECTORY + file);
+            if (url == null)
+                throw new IOException("Missing image: " + file);
+            BufferedImage image = ImageIO.read(url);
+            if (image == null)
+                throw new IOException("Unsupported image format: " + file);
+            return toCompatible(image, image.getWidth(), image.getHeight());
+        } catch (IOException e) {
+            e.printStackTrace();
+            // a blank image keeps the screens usable when an asset is missing
+            return new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        }
+    }
+    // copies the image into the pixel format of the screen, scaling it on the way
+    private static BufferedImage toCompatible(BufferedImage image, int width, int height) {
+        BufferedImage copy;
+        if (GraphicsEnvironment.isHeadless())
+            copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        else
+            copy = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                                      .getDefaultConfiguration().createCompatibleImage(width, height);
+        Graphics2D g = copy.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return copy;
+    }
+    private BufferedImage original(String name) {
+        CompletableFuture<BufferedImage> image = originals.get(name);
+        if (image == null)
+            throw new IllegalArgumentException("Unknown image: " + name);
+        // only waits if the screen is shown before the background decode finished
+        return image.join();
+    }
+    // device pixels per logical pixel of the screen the component is on
+    private static double screenScale(Component component) {
+        GraphicsConfiguration config = component != null ? component.getGraphicsConfiguration() : null;
+        if (config == null) {
+            if (GraphicsEnvironment.isHeadless())
+                return 1;
+            config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                                        .getDefaultConfiguration();
+        }
+        AffineTransform transform = config.getDefaultTransform();
+        return Math.max(transform.getScaleX(), transform.getScaleY());
+    }
+    private static int devicePixels(int size, double scale) {
+        return (int) Math.ceil(size * scale);
+    }
+    // the image as pixels x pixels device pixels, from the Big variant when the normal one is too small
+    private Image scale(String name, int pixels) {
+        BufferedImage image = original(name);
+        if (pixels > image.getWidth() && originals.containsKey(name + "Big"))
+            image = original(name + "Big");
+        if (image.getWidth() == pixels && image.getHeight() == pixels)
+            return image;
+        return toCompatible(image, pixels, pixels);
+    }
+    // the image as a size x size icon (in logical pixels) for the screen of the given component
+    public Icon getIcon(String name, int size, Component component) {
+        int pixels = devicePixels(size, screenScale(component));
+        // only waits if the screen is shown before the background scaling finished; sizes that were not
+        // scaled ahead (another screen scale) are scaled here, once
+        Image image = scaled.computeIfAbsent(name + "@" + pixels,
+                                             key -> CompletableFuture.completedFuture(scale(name, pixels))).join();
+        return new ScaledIcon(image, size, size);
+    }
+    // shrinks a preferred image size so that a window of the given height fits on the screen
+    public static int fitToScreen(int size, int windowHeight, Component component) {
+        if (GraphicsEnvironment.isHeadless())
+            return size;
+        GraphicsConfiguration config = component != null ? component.getGraphicsConfiguration() : null;
+        if (config == null)
+            config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                                        .getDefaultConfiguration();
+        Insets insets = Toolkit.getDefaultToolkit().getScreenInsets(config);
+        int available = config.getBounds().height - insets.top - insets.bottom;
+        if (available >= windowHeight)
+            return size;
+        return Math.max(1, size * available / windowHeight);
+    }
+}
@@ -0,0 +1,92 @@
+package leagueofwarriors;
+
+import javax.swing.*;
+import java.awt.*;
+
+/*
+ * Draws a Grid tile by tile. Only the tiles inside the clip are painted, and after a move only the
+ * tiles of the old and the new player position and the tiles whose visibility changed are repainted,
+ * so a step costs the same on any map size. Explored tiles out of sight are drawn greyed out.
+ */
+class MapView extends JComponent implements VisibilityListener {
+    static final int TILE_SIZE = 75;
+    private static final Font FONT = new Font("Arial", Font.BOLD, 30);
+    private Grid map;
+    // where the player was drawn last, to repaint that tile after a move
+    private int playerX, playerY;
+    public MapView() {
+        setOpaque(false);
+        setFont(FONT);
+    }
+    public Grid getMap() {
+        return map;
+    }
+    public void setMap(Grid map) {
+        if (this.map != null)
+            this.map.visibility.removeListener(this);
+        this.map = map;
+        map.visibility.addListener(this);
+        playerX = map.playerX;
+        playerY = map.playerY;
+        revalidate();
+        repaint();
+    }
+    // repaints the tile the player left and the one it arrived on
+    public void playerMoved() {
+        repaintTile(playerX, playerY);
+        playerX = map.playerX;
+        playerY = map.playerY;
+        repaintTile(playerX, playerY);
+    }
+    public void visibilityChanged(int x, int y, int change) {
+        repaintTile(x, y);
+    }
+    public void repaintTile(int x, int y) {
+        repaint(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+    public Dimension getPreferredSize() {
+        if (map == null)
+            return new Dimension(0, 0);
+        return new Dimension(map.length * TILE_SIZE, map.width * TILE_SIZE);
+    }
+    public Dimension getMinimumSize() {
+        return getPreferredSize();
+    }
+    public Dimension getMaximumSize() {
+        return getPreferredSize();
+    }
+    protected void paintComponent(Graphics g) {
+        if (map == null)
+            return;
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        int firstX = Math.max(0, clip.x / TILE_SIZE);
+        int firstY = Math.max(0, clip.y / TILE_SIZE);
+        int lastX = Math.min(map.length - 1, (clip.x + clip.width - 1) / TILE_SIZE);
+        int lastY = Math.min(map.width - 1, (clip.y + clip.height - 1) / TILE_SIZE);
+        FontMetrics metrics = g.getFontMetrics();
+        for (int y = firstY; y <= lastY; y++)
+            for (int x = firstX; x <= lastX; x++)
+                paintTile(g, metrics, x, y);
+    }
+    private void paintTile(Graphics g, FontMetrics metrics, int x, int y) {
+        int left = x * TILE_SIZE, top = y * TILE_SIZE;
+        if (x == map.playerX && y == map.playerY) {
+            g.setColor(Color.CYAN);
+            g.fillRect(left, top, TILE_SIZE, TILE_SIZE);
+        }
+        g.setColor(Color.BLACK);
+        g.drawRect(left, top, TILE_SIZE - 1, TILE_SIZE - 1);
+        String text = map.isVisited(x, y) ? Cell.symbol(map.getType(x, y)) : "?";
+        if (text.isEmpty())
+            return;
+        // without a sight radius there is no fog, the cells walked on stay as they were
+        if (map.visibility.getRadius() > 0 && map.isVisited(x, y) && !map.isVisible(x, y))
+            g.setColor(Color.GRAY);
+        // centered like a JLabel with SwingConstants.CENTER
+        int textX = left + (TILE_SIZE - metrics.stringWidth(text)) / 2;
+        int textY = top + (TILE_SIZE - metrics.getHeight()) / 2 + metrics.getAscent();
+        g.drawString(text, textX, textY);
+    }
+}
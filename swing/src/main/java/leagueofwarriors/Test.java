@@ -1,3 +1,5 @@
+package leagueofwarriors;
+
 public class Test {
     public static void main(String[] args) {
         Game game = Game.getInstance();
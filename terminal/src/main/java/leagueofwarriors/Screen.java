@@ -0,0 +1,271 @@
+package leagueofwarriors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * The characters on the terminal. Every frame is drawn in full into the back buffer, then flush() sends only
+ * the cells that differ from the ones on the terminal, as ANSI escape codes: the cursor is moved only when the
+ * next changed cell is not where it already is, and the colour is set only when it changes. A frame where one
+ * cell moved costs a few dozen bytes whatever the size of the map. All of it goes out through one buffer.
+ */
+class Screen {
+    // styles: a colour, or'ed with BOLD
+    static final byte PLAIN = 0, RED = 1, GREEN = 2, YELLOW = 3, BLUE = 4, MAGENTA = 5, CYAN = 6, GREY = 7, BOLD = 8;
+    private static final int[] COLOURS = {39, 31, 32, 33, 34, 35, 36, 90};
+    private static final byte[][] SGR = new byte[16][];
+    static {
+        for (int style = 0; style < SGR.length; style++)
+            SGR[style] = ("\033[0;" + ((style & BOLD) != 0 ? "1;" : "") + COLOURS[style & 7] + "m")
+                .getBytes(StandardCharsets.US_ASCII);
+    }
+    // skipping a few unchanged cells by writing them again is cheaper than moving the cursor over them
+    private static final int MAX_REWRITE = 4;
+    final int rows, columns;
+    private final char[] chars, shownChars;
+    private final byte[] styles, shownStyles;
+    private final WritableByteChannel channel;
+    private final ByteBuffer output = ByteBuffer.allocate(64 * 1024);
+    // where the next character written will go and with which style, -1 when unknown
+    private int cursorRow = -1, cursorColumn = -1, style = -1;
+    // the terminal is wiped on the next flush, after it was resized or written to by someone else
+    private boolean cleared;
+    private int frameBytes;
+    public Screen(int rows, int columns, WritableByteChannel channel) {
+        this.rows = rows;
+        this.columns = columns;
+        this.channel = channel;
+        chars = new char[rows * columns];
+        shownChars = new char[rows * columns];
+        styles = new byte[rows * columns];
+        shownStyles = new byte[rows * columns];
+        clear();
+    }
+    // bytes sent by the last flush
+    public int getFrameBytes() {
+        return frameBytes;
+    }
+    public void clear() {
+        Arrays.fill(chars, ' ');
+        Arrays.fill(styles, PLAIN);
+    }
+    public void put(int row, int column, char c, byte style) {
+        if (row < 0 || row >= rows || column < 0 || column >= columns)
+            return;
+        chars[row * columns + column] = c;
+        styles[row * columns + column] = style;
+    }
+    // returns the column after the text, which is cut at the right edge
+    public int print(int row, int column, CharSequence text, byte style) {
+        for (int i = 0; i < text.length(); i++)
+            put(row, column++, text.charAt(i), style);
+        return column;
+    }
+    public void invalidate() {
+        cleared = false;
+    }
+    // switches to the alternate screen with the cursor hidden, which the terminal restores on leave()
+    public void enter() throws IOException {
+        output.clear();
+        put("\033[?1049h\033[?25l");
+        send();
+        invalidate();
+    }
+    public void leave() throws IOException {
+        output.clear();
+        put("\033[0m\033[?25h\033[?1049l");
+        send();
+    }
+    public void flush() throws IOException {
+        output.clear();
+        frameBytes = 0;
+        if (!cleared) {
+            put("\033[0m\033[2J");
+            Arrays.fill(shownChars, ' ');
+            Arrays.fill(shownStyles, PLAIN);
+            style = PLAIN;
+            cursorRow = cursorColumn = -1;
+            cleared = true;
+        }
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int i = row * columns + column;
+                if (chars[i] == shownChars[i] && styles[i] == shownStyles[i])
+                    continue;
+                if (row != cursorRow || column != cursorColumn) {
+                    int gap = column - cursorColumn;
+                    if (row == cursorRow && gap > 0 && gap <= MAX_REWRITE && sameStyle(i - gap, i)) {
+                        for (int j = i - gap; j < i; j++)
+                            putChar(shownChars[j]);
+                    } else {
+                        moveTo(row, column);
+                    }
+                }
+                if (styles[i] != style) {
+                    output.put(SGR[styles[i]]);
+                    style = styles[i];
+                }
+                putChar(chars[i]);
+                shownChars[i] = chars[i];
+                shownStyles[i] = styles[i];
+                cursorRow = row;
+                // terminals differ on where the cursor is after the last column
+                cursorColumn = column + 1 < columns ? column + 1 : -1;
+                if (output.remaining() < 64)
+                    send();
+            }
+        }
+        send();
+    }
+    private boolean sameStyle(int from, int to) {
+        for (int i = from; i < to; i++)
+            if (shownStyles[i] != style)
+                return false;
+        return true;
+    }
+    private void moveTo(int row, int column) {
+        output.put((byte) '\033').put((byte) '[');
+        putNumber(row + 1);
+        output.put((byte) ';');
+        putNumber(column + 1);
+        output.put((byte) 'H');
+    }
+    private void putNumber(int n) {
+        if (n >= 10)
+            putNumber(n / 10);
+        output.put((byte) ('0' + n % 10));
+    }
+    // UTF-8 by hand, so nothing is allocated per character; lone surrogates are not drawable
+    private void putChar(char c) {
+        if (c < 0x80) {
+            output.put((byte) c);
+        } else if (c < 0x800) {
+            output.put((byte) (0xc0 | c >> 6)).put((byte) (0x80 | c & 0x3f));
+        } else if (java.lang.Character.isSurrogate(c)) {
+            output.put((byte) '?');
+        } else {
+            output.put((byte) (0xe0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3f)).put((byte) (0x80 | c & 0x3f));
+        }
+    }
+    private void put(String ascii) {
+        for (int i = 0; i < ascii.length(); i++)
+            output.put((byte) ascii.charAt(i));
+    }
+    private void send() throws IOException {
+        output.flip();
+        frameBytes += output.remaining();
+        while (output.hasRemaining())
+            channel.write(output);
+        output.clear();
+    }
+}
+
+/*
+ * The controlling terminal in raw mode, through stty: keys arrive as they are pressed, without echo or line
+ * editing, and Ctrl-C is a key like the others. Needs a Unix terminal (/dev/tty and stty), as over SSH.
+ * The settings are restored on close, or by a shutdown hook if the JVM is stopped before.
+ * Lines typed before raw mode are read from the same stream with readLine, which never reads past the line,
+ * so keys typed ahead are still there for readKey.
+ */
+class RawTerminal implements AutoCloseable {
+    static final int KEY_UP = 0x100, KEY_DOWN = 0x101, KEY_RIGHT = 0x102, KEY_LEFT = 0x103;
+    private final String saved;
+    private final Thread restore;
+    private final InputStream input;
+    public RawTerminal(InputStream input) throws IOException {
+        this(input, "raw", "-echo");
+    }
+    // the terminal with other stty settings until close, e.g. -echo while a password is typed
+    RawTerminal(InputStream input, String... settings) throws IOException {
+        this.input = input;
+        saved = stty("-g").trim();
+        restore = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    stty(saved);
+                } catch (IOException ignored) {
+                }
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(restore);
+        stty(settings);
+    }
+    // a line in the usual line mode, without the line break; null at the end of the input
+    static String readLine(InputStream input) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = input.read()) != '\n') {
+            if (c < 0) {
+                if (line.size() == 0)
+                    return null;
+                break;
+            }
+            line.write(c);
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+    // rows and columns of the terminal, 24 x 80 when it cannot tell
+    static int[] size() {
+        try {
+            String[] size = stty("size").trim().split(" ");
+            int rows = Integer.parseInt(size[0]), columns = Integer.parseInt(size[1]);
+            if (rows > 0 && columns > 0)
+                return new int[] {rows, columns};
+        } catch (IOException | RuntimeException ignored) {
+        }
+        return new int[] {24, 80};
+    }
+    // the next key, arrows as the KEY_ constants; -1 at the end of the input
+    public int readKey() throws IOException {
+        int c = input.read();
+        if (c != '\033')
+            return c;
+        // arrows are ESC [ A or ESC O A depending on the keypad mode
+        int next = input.read();
+        if (next != '[' && next != 'O')
+            return next;
+        switch (input.read()) {
+            case 'A':
+                return KEY_UP;
+            case 'B':
+                return KEY_DOWN;
+            case 'C':
+                return KEY_RIGHT;
+            case 'D':
+                return KEY_LEFT;
+            default:
+                return 0;
+        }
+    }
+    public void close() throws IOException {
+        stty(saved);
+        try {
+            Runtime.getRuntime().removeShutdownHook(restore);
+        } catch (IllegalStateException ignored) {
+            // already shutting down, the hook restores them too
+        }
+    }
+    private static String stty(String... args) throws IOException {
+        String[] command = new String[args.length + 1];
+        command[0] = "stty";
+        System.arraycopy(args, 0, command, 1, args.length);
+        Process process = new ProcessBuilder(command).redirectInput(new File("/dev/tty"))
+                                                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.US_ASCII);
+        try {
+            if (process.waitFor() != 0)
+                throw new IOException("stty " + String.join(" ", args) + " failed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return output;
+    }
+}
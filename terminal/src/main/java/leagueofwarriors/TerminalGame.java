@@ -0,0 +1,354 @@
+package leagueofwarriors;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * League of Warriors in a terminal, for playing on a headless box over SSH:
+ *   java [-Dsight.radius=<cells>] [-Dworld.size=<cells>] -jar terminal/target/terminal.jar
+ * With a world size the maps are worlds of that many cells a side, generated as they are explored (see
+ * ChunkedGrid); the view follows the player, but there is no exploring or walking to the portal by itself.
+ * Logging in and choosing the character are plain prompts, then the game runs full screen in raw mode:
+ * arrows or WASD to move, x to explore, p to walk to the portal, a or space to attack, 1-3 for the
+ * abilities and q to quit. Every frame is drawn whole into a Screen, which only sends what changed.
+ * Progress is saved on the same turns as in the Swing game.
+ */
+public class TerminalGame implements CombatEventListener {
+    private static final int SIGHT_RADIUS = Integer.getInteger("sight.radius", 0);
+    private static final int WORLD_SIZE = Integer.getInteger("world.size", 0);
+    private static final int CTRL_C = 3;
+    private static final int LOG_LINES = 3;
+    // a cell is two columns wide, so the map looks about as wide as it is tall
+    private static final int CELL_WIDTH = 2;
+    private final AccountRepository accounts;
+    private final int accountId;
+    private final CharacterRecord selected;
+    private final GameSession game;
+    private final Screen screen;
+    private final CombatEventBus events = new CombatEventBus(CombatEventBus.DEFAULT_CAPACITY);
+    private long cursor = events.cursor();
+    // the last messages, oldest first
+    private final String[] log = new String[LOG_LINES];
+    private final StringBuilder line = new StringBuilder();
+    // map cell shown at the top left of the view
+    private int viewX, viewY;
+    public TerminalGame(AccountRepository accounts, int accountId, CharacterRecord selected, Screen screen) {
+        this.accounts = accounts;
+        this.accountId = accountId;
+        this.selected = selected;
+        this.screen = screen;
+        Character character = selected.create();
+        character.events = events;
+        game = new GameSession(character, GameRandom.newSeed(), false, false, WORLD_SIZE);
+        game.setSightRadius(SIGHT_RADIUS);
+    }
+    public void play(RawTerminal terminal) throws IOException {
+        screen.enter();
+        try {
+            while (true) {
+                draw();
+                screen.flush();
+                int key = terminal.readKey();
+                if (key < 0 || key == 'q' || key == CTRL_C || game.isOver())
+                    return;
+                if (game.enemy != null)
+                    fight(key);
+                else
+                    walk(key);
+            }
+        } finally {
+            screen.leave();
+        }
+    }
+    private void walk(int key) {
+        switch (key) {
+            case RawTerminal.KEY_UP:
+            case 'w':
+                played(game.move(GameSession.NORTH));
+                break;
+            case RawTerminal.KEY_DOWN:
+            case 's':
+                played(game.move(GameSession.SOUTH));
+                break;
+            case RawTerminal.KEY_RIGHT:
+            case 'd':
+                played(game.move(GameSession.EAST));
+                break;
+            case RawTerminal.KEY_LEFT:
+            case 'a':
+                played(game.move(GameSession.WEST));
+                break;
+            case 'x':
+                travel(PathTarget.UNEXPLORED);
+                break;
+            case 'p':
+                travel(PathTarget.PORTAL);
+                break;
+            case 'l':
+                // redraws everything, after something else wrote to the terminal
+                screen.invalidate();
+                break;
+        }
+    }
+    private void travel(PathTarget target) {
+        if (game.isWorld())
+            log("Worlds are too large to find the way, walk instead.");
+        else
+            played(game.travel(target, EnemyPolicy.AVOID));
+    }
+    private void fight(int key) {
+        if (key == 'a' || key == ' ')
+            played(game.attack(-1));
+        else if (key >= '1' && key < '1' + Math.min(GameSession.MAX_SPELLS, game.character.abilities.size()))
+            played(game.attack(key - '1'));
+        else if (key == 'l')
+            screen.invalidate();
+    }
+    private void played(TurnResult result) {
+        Character character = game.character;
+        cursor = events.drain(cursor, this);
+        switch (result) {
+            case IMPOSSIBLE_MOVE:
+                log(game.lastMessage);
+                break;
+            case NOT_ENOUGH_MANA:
+                log("Not enough mana!");
+                break;
+            case LEVEL_COMPLETED:
+                accounts.levelCompleted(accountId, selected.key, character.level, character.exp);
+                log("Map " + game.nrLevelsCompleted + " completed, " + game.expGained + " exp gained.");
+                break;
+            case ENEMY_KILLED:
+                accounts.recordProgress(accountId, selected.key, character.level, character.exp);
+                log("The enemy is dead, " + game.expGained + " exp gained.");
+                break;
+            case PLAYER_DIED:
+                log(character.name + " died.");
+                break;
+        }
+    }
+    public void onEvent(CombatEventType type, Entity source, Spell spell, int value, int extra) {
+        line.setLength(0);
+        CombatEventText.append(line, type, source, spell, value, extra);
+        log(line.toString());
+    }
+    private void log(String message) {
+        System.arraycopy(log, 1, log, 0, LOG_LINES - 1);
+        log[LOG_LINES - 1] = message;
+    }
+    // stats on the first row, messages and keys on the last ones, the map or the battle in between
+    private void draw() {
+        Character character = game.character;
+        screen.clear();
+        line.setLength(0);
+        line.append(character.name).append(" the ").append(character.getClass().getSimpleName())
+            .append("  Level ").append(character.level)
+            .append("  Exp ").append(character.exp).append('/').append(Character.expMilestones[character.level])
+            .append("  HP ").append(character.hp).append('/').append(character.maxHp)
+            .append("  Mana ").append(character.mana).append('/').append(character.maxMana)
+            .append("  Map ").append(game.nrLevelsCompleted + 1);
+        screen.print(0, 0, line, Screen.BOLD);
+        int bottom = screen.rows - LOG_LINES - 1;
+        if (game.isOver())
+            drawGameOver();
+        else if (game.enemy != null)
+            drawBattle();
+        else
+            drawMap(1, bottom);
+        for (int i = 0; i < LOG_LINES; i++)
+            if (log[i] != null)
+                screen.print(bottom + i, 0, log[i], i == LOG_LINES - 1 ? Screen.PLAIN : Screen.GREY);
+        String keys = game.isOver() ? "any key: quit" : game.enemy != null ? "a/space: attack  1-3: abilities  q: quit"
+                      : game.isWorld() ? "arrows/wasd: move  q: quit"
+                      : "arrows/wasd: move  x: explore  p: portal  q: quit";
+        screen.print(screen.rows - 1, 0, keys, Screen.GREY);
+    }
+    private void drawMap(int top, int bottom) {
+        Grid map = game.map;
+        int shownRows = bottom - top, shownColumns = screen.columns / CELL_WIDTH;
+        viewX = follow(viewX, map.playerX, map.length, shownColumns);
+        viewY = follow(viewY, map.playerY, map.width, shownRows);
+        for (int row = 0; row < shownRows; row++) {
+            int y = viewY + row;
+            if (y < 0 || y >= map.width)
+                continue;
+            for (int column = 0; column < shownColumns; column++) {
+                int x = viewX + column;
+                if (x >= 0 && x < map.length)
+                    drawCell(map, x, y, top + row, column * CELL_WIDTH);
+            }
+        }
+    }
+    /*
+    First cell of a view of shown cells along an axis of the map. Maps smaller than the view are centered;
+    on larger ones the view jumps to center the player again when it gets within a quarter of an edge, so
+    walking only redraws the whole map once in a while.
+    */
+    private static int follow(int view, int player, int size, int shown) {
+        if (size <= shown)
+            return -(shown - size) / 2;
+        if (player < view + shown / 4 || player >= view + shown - shown / 4)
+            view = player - shown / 2;
+        return Math.max(0, Math.min(view, size - shown));
+    }
+    private void drawCell(Grid map, int x, int y, int row, int column) {
+        if (x == map.playerX && y == map.playerY) {
+            screen.put(row, column, '@', (byte) (Screen.CYAN | Screen.BOLD));
+            return;
+        }
+        if (!map.isVisited(x, y)) {
+            screen.put(row, column, '?', Screen.GREY);
+            return;
+        }
+        char c;
+        byte style;
+        switch (map.getType(x, y)) {
+            case ENEMY:
+                c = 'E';
+                style = Screen.RED;
+                break;
+            case SANCTUARY:
+                c = 'S';
+                style = Screen.GREEN;
+                break;
+            case PORTAL:
+                c = 'O';
+                style = Screen.MAGENTA | Screen.BOLD;
+                break;
+            default:
+                c = '.';
+                style = Screen.PLAIN;
+                break;
+        }
+        // explored but out of sight, when there is a sight radius at all
+        if (map.visibility.getRadius() > 0 && !map.isVisible(x, y))
+            style = Screen.GREY;
+        screen.put(row, column, c, style);
+    }
+    private void drawBattle() {
+        Character character = game.character;
+        Enemy enemy = game.enemy;
+        int half = screen.columns / 2;
+        screen.print(2, 0, character.name, (byte) (Screen.CYAN | Screen.BOLD));
+        screen.print(2, half, "Enemy", (byte) (Screen.RED | Screen.BOLD));
+        drawGauges(3, 0, character);
+        drawGauges(3, half, enemy);
+        line.setLength(0);
+        line.append("[a] Basic attack  damage ").append(game.getBaseDamage());
+        screen.print(5, 0, line, Screen.PLAIN);
+        int spells = Math.min(GameSession.MAX_SPELLS, character.abilities.size());
+        for (int i = 0; i < spells; i++) {
+            Spell spell = character.abilities.get(i);
+            line.setLength(0);
+            line.append('[').append(i + 1).append("] ").append(spell.getClass().getSimpleName())
+                .append("  damage ").append(character.getSpellDamage(spell, enemy))
+                .append("  mana ").append(spell.manaCost);
+            screen.print(6 + i, 0, line, spell.manaCost <= character.mana ? Screen.PLAIN : Screen.GREY);
+        }
+    }
+    private void drawGauges(int row, int column, Entity entity) {
+        line.setLength(0);
+        line.append("HP ").append(entity.hp).append('/').append(entity.maxHp);
+        column = screen.print(row, column, line, Screen.GREEN);
+        line.setLength(0);
+        line.append("  Mana ").append(entity.mana).append('/').append(entity.maxMana);
+        screen.print(row, column, line, Screen.BLUE);
+    }
+    private void drawGameOver() {
+        Character character = game.character;
+        screen.print(2, 0, "Game over", (byte) (Screen.RED | Screen.BOLD));
+        line.setLength(0);
+        line.append(character.name).append(" reached level ").append(character.level).append(" with ")
+            .append(character.exp).append('/').append(Character.expMilestones[character.level]).append(" exp.");
+        screen.print(4, 0, line, Screen.PLAIN);
+        line.setLength(0);
+        line.append("Maps completed: ").append(game.nrLevelsCompleted)
+            .append("  Enemies killed: ").append(game.nrEnemiesKilled);
+        screen.print(5, 0, line, Screen.PLAIN);
+    }
+    public static void main(String[] args) throws IOException {
+        AccountStore store = JsonInput.openAccountStore();
+        ProgressLog progress = JsonInput.openProgressLog(store);
+        if (store == null || progress == null)
+            throw new IOException("Could not open the accounts");
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                try {
+                    progress.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }));
+        AccountRepository accounts = new AccountRepository(store, progress);
+        // the prompts and the game read the same stream, so nothing typed ahead is lost between them
+        InputStream in = System.in;
+        int accountId = login(accounts, in);
+        if (accountId < 0)
+            return;
+        CharacterRecord selected = choose(accounts.roster(accountId), in);
+        if (selected == null)
+            return;
+        int[] size = RawTerminal.size();
+        Screen screen = new Screen(size[0], size[1], new FileOutputStream(FileDescriptor.out).getChannel());
+        TerminalGame game = new TerminalGame(accounts, accountId, selected, screen);
+        try (RawTerminal terminal = new RawTerminal(in)) {
+            game.play(terminal);
+        }
+    }
+    // the account logged in, -1 at the end of the input
+    private static int login(AccountRepository accounts, InputStream in) throws IOException {
+        while (true) {
+            System.out.print("Email: ");
+            String email = RawTerminal.readLine(in);
+            if (email == null)
+                return -1;
+            String password = readPassword(in);
+            if (password == null)
+                return -1;
+            int id = accounts.find(email.trim());
+            if (id != -1 && accounts.checkPassword(id, password))
+                return id;
+            System.out.println("Wrong email or password");
+        }
+    }
+    // typed without echo when there is a terminal, read as it is from a pipe
+    private static String readPassword(InputStream in) throws IOException {
+        System.out.print("Password: ");
+        RawTerminal hidden;
+        try {
+            hidden = new RawTerminal(in, "-echo");
+        } catch (IOException e) {
+            return RawTerminal.readLine(in);
+        }
+        try (hidden) {
+            String password = RawTerminal.readLine(in);
+            System.out.println();
+            return password;
+        }
+    }
+    private static CharacterRecord choose(CharacterRecord[] roster, InputStream in) throws IOException {
+        if (roster.length == 0) {
+            System.out.println("This account has no characters");
+            return null;
+        }
+        for (int i = 0; i < roster.length; i++)
+            System.out.println((i + 1) + ". " + roster[i].name + ", " + roster[i].profession + " level " +
+                               roster[i].level);
+        while (true) {
+            System.out.print("Character: ");
+            String answer = RawTerminal.readLine(in);
+            if (answer == null)
+                return null;
+            try {
+                int i = Integer.parseInt(answer.trim()) - 1;
+                if (i >= 0 && i < roster.length)
+                    return roster[i];
+            } catch (NumberFormatException ignored) {
+            }
+            System.out.println("Pick a number from 1 to " + roster.length);
+        }
+    }
+}